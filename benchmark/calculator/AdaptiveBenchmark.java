@@ -0,0 +1,87 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Précision adaptative : coût du chemin rapide (entrées exactement représentables en double)
+ * et du chemin lent (entrées décimales comme 0.1), comparés à l'évaluation en double.
+ * Les temps sont rapportés par ligne.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(AdaptiveBenchmark.ROWS)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class AdaptiveBenchmark {
+    static final int ROWS = 1_000;
+
+    private Program program;
+    private AdaptiveArithmetic arithmetic;
+    private double[][] doubles;
+    private BigDecimal[][] exactInputs;
+    private BigDecimal[][] decimalInputs;
+
+    /**
+     * Prépare la formule et les deux jeux d'entrées.
+     */
+    @Setup
+    public void setUp() {
+        program = Program.parse("+ 4 * 2 - square", Calculator.createCommandMap());
+        arithmetic = new AdaptiveArithmetic(MathContext.DECIMAL64);
+        doubles = new double[ROWS][];
+        exactInputs = new BigDecimal[ROWS][];
+        decimalInputs = new BigDecimal[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            doubles[i] = new double[] {i * 0.25, i % 8};
+            exactInputs[i] = new BigDecimal[] {BigDecimal.valueOf(i * 0.25), BigDecimal.valueOf(i % 8)};
+            decimalInputs[i] = new BigDecimal[] {BigDecimal.valueOf(i, 1), BigDecimal.valueOf(i % 8, 2)};
+        }
+    }
+
+    @Benchmark
+    public double doubles() {
+        double sum = 0;
+        for (double[] row : doubles) {
+            sum += program.evaluate(row);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BigDecimal fastPath() {
+        BigDecimal last = null;
+        for (BigDecimal[] row : exactInputs) {
+            last = arithmetic.evaluate(program, row);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public BigDecimal slowPath() {
+        BigDecimal last = null;
+        for (BigDecimal[] row : decimalInputs) {
+            last = arithmetic.evaluate(program, row);
+        }
+        return last;
+    }
+}
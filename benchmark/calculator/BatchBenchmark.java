@@ -0,0 +1,67 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Débit du mode batch (analyse lexicale comprise), rapporté par jeton :
+ * opérateurs appelés un à un ou interpréteur à codes d'opération.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(BatchBenchmark.TOKENS)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class BatchBenchmark {
+    static final int TOKENS = 100_000;
+
+    private byte[] input;
+
+    /**
+     * Génère un flux de jetons : des nombres et des opérateurs, avec une pile bornée.
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < TOKENS / 4; i++) {
+            sb.append(i % 97).append(".25 ").append(i % 13 + 1).append(" / +\n");
+        }
+        input = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String batch() throws IOException {
+        StringWriter out = new StringWriter();
+        Calculator.runBatch(new ByteArrayInputStream(input), out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String batchInterpreted() throws IOException {
+        StringWriter out = new StringWriter();
+        Calculator.runBatch(Lexer.of(new ByteArrayInputStream(input), Calculator.batchKeywords()), out,
+                Calculator.DEFAULT_STACK_LIMIT, true);
+        return out.toString();
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entrée des microbenchmarks de la calculatrice.
+ * Le profileur GC est toujours activé afin de suivre les allocations par opération
+ * (colonne {@code gc.alloc.rate.norm}).
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Lance les benchmarks dont le nom correspond au filtre donné (tous par défaut).
+     *
+     * @param args Filtre optionnel sur le nom des benchmarks (expression régulière).
+     * @throws RunnerException si JMH ne peut pas exécuter les benchmarks.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "calculator\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sauvegarde et restauration d'une pile profonde : point de contrôle binaire et export CSV.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class CheckpointBenchmark {
+
+    @Param({"1000000", "20000000"})
+    public int size;
+
+    private State state;
+    private Path binary;
+    private Path csv;
+
+    /**
+     * Remplit la pile et écrit un premier point de contrôle à relire.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        state = new State();
+        for (int i = 0; i < size; i++) {
+            state.pushToStack(i * 0.25);
+        }
+        binary = Files.createTempFile("checkpoint", ".bin");
+        csv = Files.createTempFile("checkpoint", ".csv");
+        Checkpoint.save(state, binary);
+    }
+
+    @Benchmark
+    public Path save() throws IOException {
+        Checkpoint.save(state, binary);
+        return binary;
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        State loaded = new State();
+        Checkpoint.load(binary, loaded);
+        return loaded.stackSize();
+    }
+
+    @Benchmark
+    public Path exportCsv() throws IOException {
+        try (Writer out = Files.newBufferedWriter(csv)) {
+            Checkpoint.exportCsv(state, out);
+        }
+        return csv;
+    }
+
+    /**
+     * Supprime les fichiers.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(binary);
+        Files.delete(csv);
+    }
+}
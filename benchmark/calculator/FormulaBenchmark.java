@@ -0,0 +1,96 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Évaluation d'une même formule sur de nombreuses lignes : interprétée, décodée en
+ * codes d'opération, compilée et en colonnes. Les temps sont rapportés par ligne.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(FormulaBenchmark.ROWS)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class FormulaBenchmark {
+    static final int ROWS = 10_000;
+
+    private Program program;
+    private OpcodeProgram opcodes;
+    private CompiledProgram compiled;
+    private double[] x;
+    private double[] y;
+    private double[] row;
+
+    /**
+     * Prépare la formule et les colonnes d'entrée.
+     */
+    @Setup
+    public void setUp() {
+        program = Program.parse("square 2 * 3 / + 1 / sqrt", Calculator.createCommandMap());
+        opcodes = OpcodeProgram.decode(program);
+        compiled = ProgramCompiler.compile(program);
+        x = new double[ROWS];
+        y = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            x[i] = i * 0.5;
+            y[i] = i % 100 + 1;
+        }
+        row = new double[2];
+    }
+
+    @Benchmark
+    public double interpreted() {
+        double sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            row[0] = x[i];
+            row[1] = y[i];
+            sum += program.evaluate(row);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double opcodes() {
+        double sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            row[0] = x[i];
+            row[1] = y[i];
+            sum += opcodes.evaluate(row);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double compiled() {
+        double sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            row[0] = x[i];
+            row[1] = y[i];
+            sum += compiled.eval(row);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public ColumnarEvaluator.Result columnar() {
+        return ColumnarEvaluator.evaluate(program, x, y);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coût de l'analyse d'une même expression écrite en RPN et en notation infixe.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class InfixBenchmark {
+    static final String RPN = "1.5 2 + 3 * 4 / square sqrt 7 - 2 inv * 9 + 2 3 * 4 5 * + /";
+    static final String INFIX = "((sqrt(square((1.5 + 2) * 3 / 4)) - 7) * inv(2) + 9) / (2 * 3 + 4 * 5)";
+
+    private final Map<String, Operator> commands = Calculator.createCommandMap();
+
+    @Benchmark
+    public Program rpn() {
+        return Program.parse(RPN, commands);
+    }
+
+    @Benchmark
+    public Program infix() {
+        return InfixParser.parse(INFIX, commands);
+    }
+}
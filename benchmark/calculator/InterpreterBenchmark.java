@@ -0,0 +1,58 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exécution d'une ligne du REPL sur un état : opérateurs appelés un à un
+ * ou interpréteur à codes d'opération.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class InterpreterBenchmark {
+    static final String LINE = "clear 1.5 2 + 3 * 4 / square sqrt 7 - 2 inv * 9 + 2 3 * 4 5 * + /";
+
+    private Program program;
+    private OpcodeProgram opcodes;
+    private State state;
+
+    /**
+     * Analyse et décode la ligne.
+     */
+    @Setup
+    public void setUp() {
+        program = Program.parse(LINE, Calculator.createCommandMap());
+        opcodes = OpcodeProgram.decode(program);
+        state = new State();
+    }
+
+    @Benchmark
+    public State operators() {
+        program.execute(state);
+        return state;
+    }
+
+    @Benchmark
+    public State interpreted() {
+        opcodes.execute(state);
+        return state;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coût de la journalisation d'une ligne du REPL (six instructions), validation groupée
+ * et instantanés compris, et temps de reprise d'un journal d'environ {@value #TAIL} enregistrements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class JournalBenchmark {
+    static final int TAIL = 100_000;
+
+    private Path directory;
+    private Path recovery;
+    private Program line;
+    private State state;
+    private Journal journal;
+
+    /**
+     * Ouvre un journal vide et prépare un second répertoire contenant un journal à rejouer.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        line = Program.parse("clear 2 3 + 4 *", Calculator.createCommandMap());
+        directory = Files.createTempDirectory("journal-bench");
+        state = new State();
+        journal = new Journal(directory, state);
+
+        recovery = Files.createTempDirectory("journal-recovery");
+        try (Journal tail = new Journal(recovery, new State(), Journal.DEFAULT_GROUP_COMMIT, Long.MAX_VALUE)) {
+            for (int i = 0; i < TAIL / (2 * line.size()); i++) {
+                tail.execute(line);  // deux enregistrements par instruction
+            }
+        }
+    }
+
+    @Benchmark
+    public double journaled() {
+        journal.execute(line);
+        return state.value();
+    }
+
+    @Benchmark
+    public double plain() {
+        line.execute(state);
+        return state.value();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long recover() throws IOException {
+        try (Journal reopened = new Journal(recovery, new State(), Journal.DEFAULT_GROUP_COMMIT, Long.MAX_VALUE)) {
+            return reopened.replayed();
+        }
+    }
+
+    /**
+     * Ferme le journal et supprime les fichiers.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        for (Path dir : new Path[] {directory, recovery}) {
+            Files.deleteIfExists(dir.resolve(Journal.LOG_FILE));
+            Files.deleteIfExists(dir.resolve(Journal.SNAPSHOT_FILE));
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coût de l'instrumentation des opérateurs : la même ligne du REPL exécutée
+ * avec les {@link Metrics} désactivées (par défaut) puis activées.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class MetricsBenchmark {
+    private Program program;
+    private State state;
+
+    /**
+     * Analyse la ligne.
+     */
+    @Setup
+    public void setUp() {
+        program = Program.parse(InterpreterBenchmark.LINE, Calculator.createCommandMap());
+        state = new State();
+    }
+
+    @Benchmark
+    @Fork(1)
+    public State disabled() {
+        program.execute(state);
+        return state;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcalculator.metrics=true")
+    public State enabled() {
+        program.execute(state);
+        return state;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mesures de {@code execute()} pour chaque sous-classe d'{@link Operator}.
+ * Chaque mesure prépare ses opérandes sur la pile puis retire le résultat,
+ * afin que la pile garde une taille constante d'une invocation à l'autre.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class OperatorBenchmark {
+
+    private final Operator addition = new Addition();
+    private final Operator subtraction = new Subtraction();
+    private final Operator multiplication = new Multiplication();
+    private final Operator division = new Division();
+    private final Operator square = new Square();
+    private final Operator squareRoot = new SquareRoot();
+    private final Operator reciprocal = new Reciprocal();
+    private final Operator enter = new Enter();
+    private final Operator digit = new Digit(7);
+    private final Operator clearError = new ClearError();
+
+    private State state;
+
+    /**
+     * Crée l'état sur lequel les opérateurs sont exécutés.
+     */
+    @Setup
+    public void setUp() {
+        state = new State();
+    }
+
+    private double binary(Operator operator, double operand1, double operand2) {
+        state.pushToStack(operand1);
+        state.pushToStack(operand2);
+        operator.execute(state);
+        return state.value();
+    }
+
+    private double unary(Operator operator, double operand) {
+        state.pushToStack(operand);
+        operator.execute(state);
+        return state.value();
+    }
+
+    @Benchmark
+    public double addition() {
+        return binary(addition, 12.5, 3.25);
+    }
+
+    @Benchmark
+    public double subtraction() {
+        return binary(subtraction, 12.5, 3.25);
+    }
+
+    @Benchmark
+    public double multiplication() {
+        return binary(multiplication, 12.5, 3.25);
+    }
+
+    @Benchmark
+    public double division() {
+        return binary(division, 12.5, 3.25);
+    }
+
+    /**
+     * Division par zéro : mesure le chemin d'erreur.
+     */
+    @Benchmark
+    public double divisionByZero() {
+        double result = binary(division, 12.5, 0);
+        state.clearError();
+        return result;
+    }
+
+    @Benchmark
+    public double square() {
+        return unary(square, 3.25);
+    }
+
+    @Benchmark
+    public double squareRoot() {
+        return unary(squareRoot, 12.5);
+    }
+
+    @Benchmark
+    public double reciprocal() {
+        return unary(reciprocal, 12.5);
+    }
+
+    /**
+     * Enter empile la valeur courante ; elle est retirée pour garder la pile stable.
+     */
+    @Benchmark
+    public double enter() {
+        state.setValue(42);
+        enter.execute(state);
+        return state.popFromStack();
+    }
+
+    /**
+     * Saisie d'un chiffre ; la valeur est effacée pour éviter qu'elle ne grandisse.
+     */
+    @Benchmark
+    public String digit() {
+        digit.execute(state);
+        String value = state.getValueString();
+        clearError.execute(state);
+        return value;
+    }
+}
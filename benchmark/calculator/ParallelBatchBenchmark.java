@@ -0,0 +1,62 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Débit du mode batch parallèle selon le nombre de threads, rapporté par ligne.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(ParallelBatchBenchmark.LINES)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class ParallelBatchBenchmark {
+    static final int LINES = 200_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private byte[] input;
+
+    /**
+     * Génère des expressions indépendantes, une par ligne.
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            sb.append(i).append(" 3 / ").append(i % 11).append(" + sqrt 2 * square\n");
+        }
+        input = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int lines() throws IOException {
+        StringWriter out = new StringWriter(LINES * 8);
+        new ParallelBatch(parallelism).run(new ByteArrayInputStream(input), out);
+        return out.getBuffer().length();
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mesures des opérations de base de la pile générique {@link Stack}
+ * et de la pile primitive {@link DoubleStack}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StackBenchmark {
+
+    /**
+     * Nombre d'éléments présents dans la pile avant chaque mesure.
+     */
+    @Param({"10", "1000"})
+    int depth;
+
+    private Stack<Double> stack;
+    private DoubleStack doubleStack;
+
+    /**
+     * Remplit les deux piles avec {@code depth} valeurs.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        stack = new Stack<>();
+        doubleStack = new DoubleStack();
+        for (int i = 0; i < depth; i++) {
+            stack.push((double) i);
+            doubleStack.push(i);
+        }
+    }
+
+    /**
+     * Empile puis désempile une valeur sur la pile générique.
+     */
+    @Benchmark
+    public Double stackPushPop() {
+        stack.push(1.5);
+        return stack.pop();
+    }
+
+    /**
+     * Copie le contenu de la pile générique dans un tableau.
+     */
+    @Benchmark
+    public Object[] stackToArray() {
+        return stack.toArray();
+    }
+
+    /**
+     * Parcourt la pile générique avec son itérateur.
+     */
+    @Benchmark
+    public void stackIterator(Blackhole bh) {
+        for (Double value : stack) {
+            bh.consume(value);
+        }
+    }
+
+    /**
+     * Empile puis désempile une valeur sur la pile primitive.
+     */
+    @Benchmark
+    public double doubleStackPushPop() {
+        doubleStack.push(1.5);
+        return doubleStack.pop();
+    }
+
+    /**
+     * Copie le contenu de la pile primitive dans un tableau.
+     */
+    @Benchmark
+    public double[] doubleStackToArray() {
+        return doubleStack.toArray();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mesures des allers-retours de la valeur courante et de la pile de {@link State}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class StateBenchmark {
+
+    private State state;
+    private double x;
+
+    /**
+     * Crée un état neuf pour chaque fork.
+     */
+    @Setup
+    public void setUp() {
+        state = new State();
+        x = 1234.5678;
+    }
+
+    /**
+     * Définit puis relit la valeur courante (formatage puis analyse).
+     */
+    @Benchmark
+    public double setValueThenValue() {
+        state.setValue(x);
+        return state.value();
+    }
+
+    /**
+     * Relit la valeur courante sous forme de texte, comme le fait l'interface graphique.
+     */
+    @Benchmark
+    public String setValueThenValueString() {
+        state.setValue(x);
+        return state.getValueString();
+    }
+
+    /**
+     * Empile puis désempile une valeur via l'état.
+     */
+    @Benchmark
+    public double pushPop() {
+        state.pushToStack(x);
+        return state.popFromStack();
+    }
+}
@@ -0,0 +1,340 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Évaluation d'un programme en précision adaptative : résultat décimal exact (ou à une borne
+ * d'erreur près) sans payer le coût de {@link BigDecimal} sur chaque opération.
+ *
+ * Chaque valeur de la pile est soit un double, lorsqu'il représente exactement la valeur
+ * décimale voulue, soit un {@link BigDecimal}. Une opération entre deux doubles est d'abord
+ * calculée en double, puis son erreur d'arrondi est calculée exactement (TwoSum pour l'addition
+ * et la soustraction, {@link Math#fma} pour la multiplication, la division, l'inverse et la racine).
+ * Si cette erreur est nulle, ou inférieure à la borne relative configurée, le double est conservé ;
+ * sinon, l'opération est refaite en {@link BigDecimal} avec le {@link MathContext} configuré.
+ * Un résultat {@link BigDecimal} exactement représentable en double repasse sur le chemin rapide.
+ *
+ * Une instance est thread-safe ; les compteurs d'opérations rapides, lentes et de replis
+ * peuvent être lus à tout moment.
+ */
+public final class AdaptiveArithmetic {
+
+    /**
+     * En dessous de ce seuil, le résidu calculé par fma peut être arrondi (sous-normaux) :
+     * le chemin rapide n'est alors plus prouvé exact.
+     */
+    private static final double TINY = 0x1p-900;
+
+    private final MathContext mathContext;
+    private final double errorBound;
+    private final LongAdder fastOperations = new LongAdder();
+    private final LongAdder slowOperations = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * Crée une arithmétique exacte : le chemin rapide n'est pris que si le résultat en double est exact.
+     *
+     * @param mathContext La précision et l'arrondi des calculs en {@link BigDecimal}.
+     */
+    public AdaptiveArithmetic(MathContext mathContext) {
+        this(mathContext, 0);
+    }
+
+    /**
+     * Crée une arithmétique tolérant une erreur relative bornée sur chaque opération en double.
+     *
+     * @param mathContext La précision et l'arrondi des calculs en {@link BigDecimal}.
+     * @param errorBound  L'erreur relative tolérée par opération (0 pour un résultat exact).
+     * @throws IllegalArgumentException si la borne n'est pas dans [0, 1[.
+     */
+    public AdaptiveArithmetic(MathContext mathContext, double errorBound) {
+        if (!(errorBound >= 0 && errorBound < 1)) {
+            throw new IllegalArgumentException("errorBound must be in [0, 1): " + errorBound);
+        }
+        this.mathContext = mathContext;
+        this.errorBound = errorBound;
+    }
+
+    /**
+     * Évalue un programme comme une formule, avec la même sémantique que
+     * {@link Program#evaluate(double[])}, mais sur des valeurs décimales.
+     * Les littéraux du programme sont pris pour leur écriture décimale la plus courte.
+     *
+     * @param program Le programme à évaluer.
+     * @param inputs  Les valeurs d'entrée, la première en bas de la pile.
+     * @return La valeur au sommet de la pile à la fin du programme (0 si la pile est vide).
+     * @throws ArithmeticException      si une opération sort de son domaine (division par zéro...).
+     * @throws IllegalArgumentException s'il y a moins d'entrées que nécessaire,
+     *                                  ou si le programme contient un opérateur inconnu.
+     * @throws IllegalStateException    si le programme manque d'opérandes après un {@code clear}.
+     */
+    public BigDecimal evaluate(Program program, BigDecimal... inputs) {
+        program.checkEvaluable();
+        int required = program.requiredInputs();
+        if (inputs.length < required) {
+            throw new IllegalArgumentException(Program.inputsError(required));
+        }
+
+        double[] fast = new double[program.maxDepth()];
+        BigDecimal[] slow = new BigDecimal[program.maxDepth()];  // null : la valeur est dans fast
+        int top = 0;
+        for (; top < required; top++) {
+            set(fast, slow, top, inputs[top]);
+        }
+        for (int i = 0; i < program.size(); i++) {
+            Operator operator = program.operator(i);
+            if (operator == null) {
+                double literal = program.literal(i);
+                if (literal == Math.rint(literal) && Math.abs(literal) < 0x1p53) {
+                    fast[top] = literal;
+                    slow[top] = null;
+                } else {
+                    set(fast, slow, top, BigDecimal.valueOf(literal));
+                }
+                top++;
+            } else if (operator instanceof Clear) {
+                top = 0;
+                fast[top] = 0;
+                slow[top++] = null;
+            } else if (operator instanceof BinaryOperation) {
+                top--;
+                binary(operator, fast, slow, top - 1, top);
+            } else {
+                unary(operator, fast, slow, top - 1);
+            }
+        }
+        if (top == 0) {
+            return BigDecimal.ZERO;
+        }
+        if (slow[top - 1] != null) {
+            return slow[top - 1];
+        }
+        return errorBound == 0 ? new BigDecimal(fast[top - 1]) : BigDecimal.valueOf(fast[top - 1]);
+    }
+
+    /**
+     * Calcule une opération binaire ; le résultat remplace l'opérande de gauche.
+     */
+    private void binary(Operator operator, double[] fast, BigDecimal[] slow, int a, int b) {
+        if (slow[a] == null && slow[b] == null) {
+            double x = fast[a];
+            double y = fast[b];
+            double result;
+            double error;
+            if (operator instanceof Addition) {
+                result = x + y;
+                error = twoSumError(x, y, result);
+            } else if (operator instanceof Subtraction) {
+                result = x - y;
+                error = twoSumError(x, -y, result);
+            } else if (operator instanceof Multiplication) {
+                result = x * y;
+                error = Math.fma(x, y, -result);
+            } else if (operator instanceof Division) {
+                if (y == 0) {
+                    throw new ArithmeticException(Division.ERROR);
+                }
+                result = x / y;
+                error = Math.fma(-result, y, x) / y;  // reste exact de la division, ramené au quotient
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported operator: " + operator.getClass().getSimpleName());
+            }
+            if (accept(result, error)) {
+                fast[a] = result;
+                return;
+            }
+            fallbacks.increment();
+        }
+
+        BigDecimal x = decimal(fast, slow, a);
+        BigDecimal y = decimal(fast, slow, b);
+        BigDecimal result;
+        if (operator instanceof Addition) {
+            result = x.add(y, mathContext);
+        } else if (operator instanceof Subtraction) {
+            result = x.subtract(y, mathContext);
+        } else if (operator instanceof Multiplication) {
+            result = x.multiply(y, mathContext);
+        } else if (operator instanceof Division) {
+            if (y.signum() == 0) {
+                throw new ArithmeticException(Division.ERROR);
+            }
+            result = x.divide(y, mathContext);
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported operator: " + operator.getClass().getSimpleName());
+        }
+        slowOperations.increment();
+        set(fast, slow, a, result);
+    }
+
+    /**
+     * Calcule une opération unaire ; le résultat remplace l'opérande.
+     */
+    private void unary(Operator operator, double[] fast, BigDecimal[] slow, int a) {
+        if (slow[a] == null) {
+            double x = fast[a];
+            double result;
+            double error;
+            if (operator instanceof Square) {
+                result = x * x;
+                error = Math.fma(x, x, -result);
+            } else if (operator instanceof SquareRoot) {
+                if (x < 0) {
+                    throw new ArithmeticException(SquareRoot.ERROR);
+                }
+                result = Math.sqrt(x);
+                error = result == 0 ? 0 : Math.fma(-result, result, x) / (2 * result);
+            } else if (operator instanceof Reciprocal) {
+                if (x == 0) {
+                    throw new ArithmeticException(Reciprocal.ERROR);
+                }
+                result = 1 / x;
+                error = Math.fma(-result, x, 1) / x;
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported operator: " + operator.getClass().getSimpleName());
+            }
+            if (accept(result, error)) {
+                fast[a] = result;
+                return;
+            }
+            fallbacks.increment();
+        }
+
+        BigDecimal x = decimal(fast, slow, a);
+        BigDecimal result;
+        if (operator instanceof Square) {
+            result = x.multiply(x, mathContext);
+        } else if (operator instanceof SquareRoot) {
+            if (x.signum() < 0) {
+                throw new ArithmeticException(SquareRoot.ERROR);
+            }
+            result = x.sqrt(mathContext);
+        } else if (operator instanceof Reciprocal) {
+            if (x.signum() == 0) {
+                throw new ArithmeticException(Reciprocal.ERROR);
+            }
+            result = BigDecimal.ONE.divide(x, mathContext);
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported operator: " + operator.getClass().getSimpleName());
+        }
+        slowOperations.increment();
+        set(fast, slow, a, result);
+    }
+
+    /**
+     * Décide si un résultat calculé en double peut être conservé.
+     *
+     * @param result Le résultat arrondi.
+     * @param error  L'écart entre le résultat exact et le résultat arrondi.
+     * @return true si l'écart respecte la borne et que le résidu est lui-même exact.
+     */
+    private boolean accept(double result, double error) {
+        if (!Double.isFinite(result) || result != 0 && Math.abs(result) < TINY) {
+            return false;
+        }
+        if (error == 0 || Math.abs(error) <= errorBound * Math.abs(result)) {
+            fastOperations.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Erreur d'arrondi exacte d'une addition (algorithme TwoSum de Knuth).
+     *
+     * @param a   Premier opérande.
+     * @param b   Deuxième opérande.
+     * @param sum La somme arrondie a + b.
+     * @return La valeur e telle que a + b = sum + e exactement.
+     */
+    static double twoSumError(double a, double b, double sum) {
+        double bVirtual = sum - a;
+        double aVirtual = sum - bVirtual;
+        return (a - aVirtual) + (b - bVirtual);
+    }
+
+    /**
+     * Place une valeur décimale sur la pile, sous forme de double si elle est exactement représentable.
+     */
+    private static void set(double[] fast, BigDecimal[] slow, int index, BigDecimal value) {
+        double d = value.doubleValue();
+        if (Double.isFinite(d) && new BigDecimal(d).compareTo(value) == 0) {
+            fast[index] = d;
+            slow[index] = null;
+        } else {
+            slow[index] = value;
+        }
+    }
+
+    /**
+     * Retourne un élément de la pile sous forme décimale ; la conversion d'un double est exacte.
+     */
+    private static BigDecimal decimal(double[] fast, BigDecimal[] slow, int index) {
+        return slow[index] != null ? slow[index] : new BigDecimal(fast[index]);
+    }
+
+    /**
+     * Retourne la précision des calculs en {@link BigDecimal}.
+     *
+     * @return Le contexte mathématique.
+     */
+    public MathContext mathContext() {
+        return mathContext;
+    }
+
+    /**
+     * Retourne l'erreur relative tolérée par opération en double.
+     *
+     * @return La borne d'erreur (0 pour un résultat exact).
+     */
+    public double errorBound() {
+        return errorBound;
+    }
+
+    /**
+     * Retourne le nombre d'opérations calculées en double.
+     *
+     * @return Le nombre d'opérations sur le chemin rapide.
+     */
+    public long fastOperations() {
+        return fastOperations.sum();
+    }
+
+    /**
+     * Retourne le nombre d'opérations calculées en {@link BigDecimal}.
+     *
+     * @return Le nombre d'opérations sur le chemin lent.
+     */
+    public long slowOperations() {
+        return slowOperations.sum();
+    }
+
+    /**
+     * Retourne le nombre d'opérations tentées en double puis refaites en {@link BigDecimal}
+     * parce que le résultat n'était pas assez précis. Ces opérations sont aussi comptées
+     * dans {@link #slowOperations()}.
+     *
+     * @return Le nombre de replis.
+     */
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveArithmetic[" + mathContext + ", errorBound=" + errorBound
+                + ", fast=" + fastOperations() + ", slow=" + slowOperations()
+                + ", fallbacks=" + fallbacks() + "]";
+    }
+}
@@ -5,15 +5,119 @@
 
 package calculator;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
 
 public class Calculator {
 
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
-        State state = State.getState();
+    /**
+     * Option de ligne de commande activant le mode batch.
+     */
+    private static final String BATCH_FLAG = "--batch";
+
+    /**
+     * Option de ligne de commande lançant le serveur TCP local.
+     */
+    private static final String SERVER_FLAG = "--server";
+
+    /**
+     * Commande du mode batch qui écrit la valeur courante.
+     */
+    private static final String PRINT_COMMAND = "print";
+
+    /**
+     * Option de ligne de commande fixant le nombre d'éléments de pile affichés.
+     */
+    private static final String STACK_LIMIT_FLAG = "--stack-limit";
+
+    /**
+     * Option de ligne de commande activant le journal du REPL dans un répertoire.
+     */
+    private static final String JOURNAL_FLAG = "--journal";
+
+    /**
+     * Option de ligne de commande exécutant les expressions avec l'interpréteur de {@link OpcodeProgram}.
+     */
+    private static final String INTERPRETER_FLAG = "--interpreter";
+
+    /**
+     * Option de ligne de commande évaluant les lignes du mode batch comme des expressions
+     * indépendantes, en parallèle sur le nombre de threads indiqué ({@link ParallelBatch}).
+     */
+    private static final String PARALLEL_FLAG = "--parallel";
+
+    /**
+     * Option de ligne de commande activant les {@link Metrics} et les servant en HTTP sur le port indiqué.
+     */
+    private static final String METRICS_FLAG = "--metrics";
+
+    /**
+     * Option de ligne de commande écrivant les {@link Diagnostics} des opérateurs sur la sortie d'erreur.
+     */
+    private static final String DIAGNOSTICS_FLAG = "--diagnostics";
+
+    /**
+     * Commande du REPL et du mode batch qui écrit la pile complète.
+     */
+    private static final String DUMP_COMMAND = "dump";
+
+    /**
+     * Commande du REPL qui annule la dernière ligne exécutée.
+     */
+    private static final String UNDO_COMMAND = "undo";
+
+    /**
+     * Commande du REPL qui rétablit la dernière ligne annulée.
+     */
+    private static final String REDO_COMMAND = "redo";
+
+    /**
+     * Commande du REPL qui affiche la version optimisée de l'expression qui la suit
+     * et le nombre d'instructions avant et après optimisation.
+     */
+    private static final String OPTIMIZE_COMMAND = "optimize";
+
+    /**
+     * Commandes du REPL qui sauvegardent ou restaurent l'état dans un point de contrôle binaire,
+     * et exportent ou importent la pile au format CSV. Chacune est suivie d'un nom de fichier.
+     */
+    private static final String SAVE_COMMAND = "save";
+    private static final String LOAD_COMMAND = "load";
+    private static final String EXPORT_COMMAND = "export";
+    private static final String IMPORT_COMMAND = "import";
+
+    /**
+     * Nombre d'éléments du sommet de la pile affichés par défaut.
+     */
+    static final int DEFAULT_STACK_LIMIT = 16;
+
+    /**
+     * Nombre d'expressions conservées par le cache du REPL.
+     */
+    static final int CACHE_CAPACITY = 512;
+
+    /**
+     * Nombre maximal d'instructions décodées d'un bloc avant son exécution, en mode batch interprété.
+     */
+    static final int BATCH_BLOCK = 4096;
+
+    /**
+     * Crée la table associant chaque commande textuelle à son opérateur.
+     *
+     * @return La table des commandes reconnues.
+     */
+    static Map<String, Operator> createCommandMap() {
         Map<String, Operator> commandMap = new HashMap<>();
         commandMap.put("+", new Addition());
         commandMap.put("-", new Subtraction());
@@ -23,30 +127,438 @@ public class Calculator {
         commandMap.put("square", new Square());
         commandMap.put("inv", new Reciprocal());
         commandMap.put("clear", new Clear());
+        return commandMap;
+    }
+
+    /**
+     * Évalue un flux de jetons séparés par des espaces ou des retours à la ligne,
+     * sans invite ni affichage intermédiaire de la pile. Seules la valeur courante
+     * (à chaque commande {@code print}), la pile complète (à chaque commande {@code dump})
+     * et le sommet de la pile finale sont écrits. Une erreur écrite par {@code print} est
+     * acquittée : le {@code print} suivant écrit de nouveau la valeur courante.
+     * Les jetons sont reconnus par un {@link Lexer} et transmis directement aux opérateurs.
+     *
+     * @param in  Le flux de jetons à évaluer.
+     * @param out La destination des résultats.
+     * @throws IOException en cas d'erreur de lecture ou d'écriture.
+     */
+    static void runBatch(InputStream in, Writer out) throws IOException {
+        runBatch(Lexer.of(in, batchKeywords()), out);
+    }
+
+    /**
+     * Évalue les jetons fournis par un lexer construit avec {@link #batchKeywords()}.
+     *
+     * @param lexer Le lexer fournissant les jetons.
+     * @param out   La destination des résultats.
+     * @throws IOException en cas d'erreur de lecture ou d'écriture.
+     */
+    static void runBatch(Lexer lexer, Writer out) throws IOException {
+        runBatch(lexer, out, DEFAULT_STACK_LIMIT);
+    }
+
+    /**
+     * Évalue les jetons fournis par un lexer construit avec {@link #batchKeywords()}.
+     *
+     * @param lexer      Le lexer fournissant les jetons.
+     * @param out        La destination des résultats.
+     * @param stackLimit Le nombre d'éléments du sommet de la pile finale écrits.
+     * @throws IOException en cas d'erreur de lecture ou d'écriture.
+     */
+    static void runBatch(Lexer lexer, Writer out, int stackLimit) throws IOException {
+        runBatch(lexer, out, stackLimit, false);
+    }
+
+    /**
+     * Évalue les jetons fournis par un lexer construit avec {@link #batchKeywords()}.
+     * Avec l'interpréteur, les jetons sont décodés par blocs d'au plus {@value #BATCH_BLOCK}
+     * instructions, chaque bloc étant exécuté par un {@link OpcodeProgram} avant un
+     * {@code print}, un {@code dump} ou lorsqu'il est plein.
+     *
+     * @param lexer       Le lexer fournissant les jetons.
+     * @param out         La destination des résultats.
+     * @param stackLimit  Le nombre d'éléments du sommet de la pile finale écrits.
+     * @param interpreted true pour exécuter les jetons avec l'interpréteur.
+     * @throws IOException en cas d'erreur de lecture ou d'écriture.
+     */
+    static void runBatch(Lexer lexer, Writer out, int stackLimit, boolean interpreted) throws IOException {
+        if (interpreted) {
+            runBatchInterpreted(lexer, out, stackLimit);
+            return;
+        }
+        State state = new State();
+        Operator[] operators = batchOperators();
+        int print = operators.length;
+        int dump = print + 1;
+        int token;
+        while ((token = lexer.next()) != Lexer.EOF) {
+            if (token == Lexer.NUMBER) {
+                double number = lexer.number();
+                state.setValue(number);
+                state.pushToStack(number);
+            } else if (token == Lexer.WORD && lexer.keyword() == print) {
+                out.write(state.getValueString());
+                out.write('\n');
+                state.dismissError();  // une erreur n'est écrite qu'une fois
+            } else if (token == Lexer.WORD && lexer.keyword() == dump) {
+                out.write(state.stackToString());
+                out.write('\n');
+            } else if (token == Lexer.WORD) {
+                operators[lexer.keyword()].run(state);
+                state.pushToStack(state.value());
+            } else {
+                System.err.println("Unknown command: " + lexer.text());
+            }
+        }
+        out.write(state.stackToString(stackLimit));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Évalue les jetons d'un lexer avec l'interpréteur, bloc par bloc.
+     */
+    private static void runBatchInterpreted(Lexer lexer, Writer out, int stackLimit) throws IOException {
+        State state = new State();
+        Operator[] operators = batchOperators();
+        int[] opcodes = new int[operators.length];
+        for (int i = 0; i < operators.length; i++) {
+            opcodes[i] = Opcodes.of(operators[i]);
+        }
+        int print = operators.length;
+        int dump = print + 1;
+        int[] code = new int[BATCH_BLOCK];
+        double[] constants = new double[BATCH_BLOCK];
+        int length = 0;
+        int token;
+        while ((token = lexer.next()) != Lexer.EOF) {
+            if (token == Lexer.NUMBER) {
+                code[length] = Opcodes.VALUE;
+                constants[length++] = lexer.number();
+            } else if (token == Lexer.WORD && lexer.keyword() < print) {
+                code[length++] = opcodes[lexer.keyword()];
+            } else if (token == Lexer.WORD) {
+                length = flush(code, constants, length, state);
+                if (lexer.keyword() == dump) {
+                    out.write(state.stackToString());
+                } else {
+                    out.write(state.getValueString());
+                    state.dismissError();  // une erreur n'est écrite qu'une fois
+                }
+                out.write('\n');
+            } else {
+                System.err.println("Unknown command: " + lexer.text());
+            }
+            if (length == BATCH_BLOCK) {
+                length = flush(code, constants, length, state);
+            }
+        }
+        flush(code, constants, length, state);
+        out.write(state.stackToString(stackLimit));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Exécute les instructions décodées d'un bloc sur l'état.
+     *
+     * @return 0, la nouvelle longueur du bloc.
+     */
+    private static int flush(int[] code, double[] constants, int length, State state) {
+        if (length > 0) {
+            new OpcodeProgram(code, constants, length, null).execute(state);
+        }
+        return 0;
+    }
+
+    /**
+     * Retourne les mots-clés du mode batch : les commandes de {@link #createCommandMap()},
+     * dans l'ordre de {@link #batchOperators()}, suivies de {@code print} et {@code dump}.
+     *
+     * @return Les mots-clés reconnus par le lexer du mode batch.
+     */
+    static String[] batchKeywords() {
+        String[] commands = createCommandMap().keySet().toArray(new String[0]);
+        Arrays.sort(commands);
+        String[] keywords = Arrays.copyOf(commands, commands.length + 2);
+        keywords[commands.length] = PRINT_COMMAND;
+        keywords[commands.length + 1] = DUMP_COMMAND;
+        return keywords;
+    }
+
+    /**
+     * Retourne les opérateurs du mode batch, indexés comme les mots-clés de {@link #batchKeywords()}.
+     *
+     * @return Les opérateurs, par indice de mot-clé.
+     */
+    static Operator[] batchOperators() {
+        Map<String, Operator> commandMap = createCommandMap();
+        String[] commands = commandMap.keySet().toArray(new String[0]);
+        Arrays.sort(commands);
+        Operator[] operators = new Operator[commands.length];
+        for (int i = 0; i < commands.length; i++) {
+            operators[i] = commandMap.get(commands[i]);
+        }
+        return operators;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int stackLimit = -1;  // -1 : option absente
+        Path journalDirectory = null;
+        boolean interpreted = false;
+        boolean diagnostics = false;
+        int parallelism = 0;
+        int metricsPort = -1;
+        int i = 0;
+        for (; i < args.length && !args[i].equals(BATCH_FLAG) && !args[i].equals(SERVER_FLAG); i++) {
+            switch (args[i]) {
+                case INTERPRETER_FLAG -> interpreted = true;
+                case DIAGNOSTICS_FLAG -> diagnostics = true;
+                case STACK_LIMIT_FLAG -> stackLimit = intOption(args, ++i, 0, "stack limit");
+                case PARALLEL_FLAG -> parallelism = intOption(args, ++i, 1, "parallelism");
+                case METRICS_FLAG -> {
+                    metricsPort = intOption(args, ++i, 0, "metrics port");
+                    if (metricsPort > 65535) {
+                        fail("Invalid metrics port: " + args[i]);
+                    }
+                }
+                case JOURNAL_FLAG -> {
+                    if (++i == args.length) {
+                        fail("Missing value for " + JOURNAL_FLAG);
+                    }
+                    journalDirectory = Path.of(args[i]);
+                }
+                default -> fail("Unknown option: " + args[i]);
+            }
+        }
+        String mode = i < args.length ? args[i] : null;  // BATCH_FLAG, SERVER_FLAG ou null pour le REPL
+        String[] modeArgs = i < args.length ? Arrays.copyOfRange(args, i + 1, args.length) : new String[0];
+
+        // Combinaisons refusées plutôt qu'ignorées
+        if (journalDirectory != null && mode != null) {
+            fail(JOURNAL_FLAG + " is only supported by the REPL");
+        }
+        if (parallelism > 0 && !BATCH_FLAG.equals(mode)) {
+            fail(PARALLEL_FLAG + " requires " + BATCH_FLAG);
+        }
+        if (parallelism > 0 && (interpreted || stackLimit >= 0)) {
+            fail((interpreted ? INTERPRETER_FLAG : STACK_LIMIT_FLAG) + " is not supported with " + PARALLEL_FLAG);
+        }
+        if (SERVER_FLAG.equals(mode) && (interpreted || stackLimit >= 0)) {
+            fail((interpreted ? INTERPRETER_FLAG : STACK_LIMIT_FLAG) + " is not supported with " + SERVER_FLAG);
+        }
+        if (BATCH_FLAG.equals(mode) && modeArgs.length > 1) {
+            fail("Unexpected argument: " + modeArgs[1]);
+        }
+        if (stackLimit < 0) {
+            stackLimit = DEFAULT_STACK_LIMIT;
+        }
+
+        if (diagnostics) {
+            Diagnostics.setSink(System.err::println);
+        }
+        if (metricsPort >= 0) {
+            System.setProperty("calculator.metrics", "true");  // avant le premier accès à Metrics.ENABLED
+            Metrics.register();
+            System.err.println("Metrics on http://localhost:" + Metrics.serve(metricsPort).getAddress().getPort() + "/metrics");
+        } else if (Metrics.ENABLED) {
+            Metrics.register();
+        }
+        if (SERVER_FLAG.equals(mode)) {
+            CalculatorServer.main(modeArgs);
+            return;
+        }
+        if (BATCH_FLAG.equals(mode)) {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16)) {
+                if (parallelism > 0 && modeArgs.length > 0) {
+                    new ParallelBatch(parallelism).run(Path.of(modeArgs[0]), out);
+                } else if (parallelism > 0) {
+                    new ParallelBatch(parallelism).run(System.in, out);
+                } else if (modeArgs.length > 0) {
+                    try (MappedSource source = new MappedSource(Path.of(modeArgs[0]))) {
+                        runBatch(new Lexer(source, batchKeywords()), out, stackLimit, interpreted);
+                    }
+                } else {
+                    runBatch(Lexer.of(System.in, batchKeywords()), out, stackLimit, interpreted);
+                }
+            } catch (IOException e) {
+                System.err.println("Batch evaluation failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        State state = new State();
+        try (Journal journal = journalDirectory != null ? new Journal(journalDirectory, state) : null) {
+            runRepl(reader, state, journal, stackLimit, interpreted);
+        }
+    }
+
+    /**
+     * Lit la valeur entière d'une option de la ligne de commande ; termine le programme si elle
+     * est absente ou invalide.
+     *
+     * @param args    Les arguments de la ligne de commande.
+     * @param index   La position de la valeur.
+     * @param minimum La plus petite valeur admise.
+     * @param name    Le nom de la valeur, pour le message d'erreur.
+     * @return La valeur.
+     */
+    private static int intOption(String[] args, int index, int minimum, String name) {
+        if (index == args.length) {
+            fail("Missing value for " + args[index - 1]);
+        }
+        try {
+            int value = Integer.parseInt(args[index]);
+            if (value >= minimum) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // signalé ci-dessous
+        }
+        fail("Invalid " + name + ": " + args[index]);
+        return minimum;  // inaccessible
+    }
+
+    /**
+     * Signale une erreur de ligne de commande et termine le programme.
+     *
+     * @param message Le message d'erreur.
+     */
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+
+    /**
+     * Indique si un mot est une commande de fichier du REPL.
+     *
+     * @param word Le premier mot de la ligne.
+     * @return true pour {@code save}, {@code load}, {@code export} et {@code import}.
+     */
+    private static boolean isFileCommand(String word) {
+        return word.equalsIgnoreCase(SAVE_COMMAND) || word.equalsIgnoreCase(LOAD_COMMAND)
+                || word.equalsIgnoreCase(EXPORT_COMMAND) || word.equalsIgnoreCase(IMPORT_COMMAND);
+    }
+
+    /**
+     * Exécute une commande de fichier du REPL.
+     *
+     * @param command La commande, en minuscules.
+     * @param file    Le fichier concerné.
+     * @param state   L'état de la session.
+     * @return true si l'état a été modifié ({@code load} et {@code import}).
+     * @throws IOException en cas d'erreur de lecture ou d'écriture.
+     */
+    private static boolean fileCommand(String command, Path file, State state) throws IOException {
+        switch (command) {
+            case SAVE_COMMAND -> Checkpoint.save(state, file);
+            case LOAD_COMMAND -> Checkpoint.load(file, state);
+            case EXPORT_COMMAND -> {
+                try (Writer out = Files.newBufferedWriter(file)) {
+                    Checkpoint.exportCsv(state, out);
+                }
+            }
+            default -> {
+                try (Reader in = Files.newBufferedReader(file)) {
+                    Checkpoint.importCsv(in, state);
+                }
+            }
+        }
+        return command.equals(LOAD_COMMAND) || command.equals(IMPORT_COMMAND);
+    }
+
+    /**
+     * Boucle interactive : chaque ligne est exécutée puis le sommet de la pile est affiché,
+     * précédé de la dernière erreur signalée par la ligne s'il y en a une.
+     * Une ligne commençant par {@code =} est une expression infixe ({@link InfixParser}).
+     *
+     * @param reader      La source des lignes.
+     * @param state       L'état de la session, éventuellement restauré depuis le journal.
+     * @param journal     Le journal des opérations, ou null.
+     * @param stackLimit  Le nombre d'éléments du sommet de la pile affichés.
+     * @param interpreted true pour exécuter les lignes avec l'interpréteur (sauf avec un journal,
+     *                    qui enregistre chaque instruction séparément).
+     * @throws IOException en cas d'erreur de lecture.
+     */
+    private static void runRepl(BufferedReader reader, State state, Journal journal, int stackLimit,
+                                boolean interpreted) throws IOException {
+        History history = new History(state);
+        ProgramCache cache = new ProgramCache(CACHE_CAPACITY, createCommandMap());
 
         System.out.println("Calculator (type 'exit' to quit)");
+        if (journal != null && state.stackSize() > 0) {
+            System.out.println(state.stackToString(stackLimit));
+        }
         while (true) {
             System.out.print("> ");
-            String input = scanner.nextLine().trim();
+            String input = reader.readLine();
 
-            if (input.equalsIgnoreCase("exit")) {
+            if (input == null || input.trim().equalsIgnoreCase("exit")) {
                 break;
             }
-            if (input.matches("-?\\d+(\\.\\d+)?")) {
-                double number = Double.parseDouble(input);
-                state.setValue(number);
-                state.pushToStack(number);
+            String command = input.trim();
+            if (command.equalsIgnoreCase(DUMP_COMMAND)) {
+                System.out.println(state.stackToString());
+                continue;
             }
-            else if (commandMap.containsKey(input.toLowerCase())) {
-                commandMap.get(input.toLowerCase()).execute();
-                state.pushToStack(state.value());
-            } else {
-                System.out.println("Unknown command: " + input);
+            String[] words = command.split("\\s+", 2);
+            if (words.length == 2 && words[0].equalsIgnoreCase(OPTIMIZE_COMMAND)) {
+                try {
+                    Program program = cache.get(words[1]);
+                    Program optimized = Optimizer.optimize(program);
+                    System.out.println(optimized + " (" + program.size() + " -> " + optimized.size() + " instructions)");
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                }
                 continue;
             }
-            System.out.println(state.stackToString());
+            if (words.length == 2 && isFileCommand(words[0])) {
+                try {
+                    if (!fileCommand(words[0].toLowerCase(), Path.of(words[1]), state)) {
+                        continue;
+                    }
+                } catch (IOException e) {
+                    System.out.println("File error: " + e.getMessage());
+                    continue;
+                }
+                history.record();
+                if (journal != null) {
+                    journal.snapshot();  // l'état chargé ne découle pas du journal
+                }
+            } else if (command.equalsIgnoreCase(UNDO_COMMAND) || command.equalsIgnoreCase(REDO_COMMAND)) {
+                boolean undo = command.equalsIgnoreCase(UNDO_COMMAND);
+                if (!(undo ? history.undo() : history.redo())) {
+                    System.out.println(undo ? "Nothing to undo" : "Nothing to redo");
+                    continue;
+                }
+                if (journal != null) {
+                    journal.snapshot();  // l'état rétabli ne découle pas du journal
+                }
+            } else {
+                Program program;
+                try {
+                    program = cache.get(input);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    continue;
+                }
+                int errors = state.errorCount();
+                if (journal != null) {
+                    journal.execute(program);
+                    journal.commit();
+                } else if (interpreted) {
+                    cache.getOpcodes(input).execute(state);
+                } else {
+                    program.execute(state);
+                }
+                history.record();
+                if (state.errorCount() != errors) {
+                    System.out.println(state.getValueString());  // dernière erreur de la ligne
+                }
+            }
+            System.out.println(state.stackToString(stackLimit));
         }
-
-        scanner.close();
     }
 }
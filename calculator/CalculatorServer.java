@@ -0,0 +1,149 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serveur TCP local d'évaluation RPN.
+ * Chaque ligne reçue contient un ou plusieurs jetons (les mêmes que ceux du REPL) ;
+ * le serveur répond par une ligne contenant la valeur courante, ou le message
+ * d'erreur pour un jeton inconnu. La commande {@code exit} ferme la connexion.
+ * Chaque connexion dispose de son propre {@link State} et est traitée sur un thread virtuel.
+ */
+public class CalculatorServer implements AutoCloseable {
+
+    /**
+     * Port d'écoute par défaut.
+     */
+    static final int DEFAULT_PORT = 7070;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final StatePool pool = new StatePool(1024);
+    private final ProgramCache cache = new ProgramCache(Calculator.CACHE_CAPACITY, Calculator.createCommandMap());
+
+    /**
+     * Ouvre le serveur sur l'interface locale.
+     *
+     * @param port Le port d'écoute (0 pour un port libre quelconque).
+     * @throws IOException si le port ne peut pas être ouvert.
+     */
+    public CalculatorServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Retourne le port sur lequel le serveur écoute.
+     *
+     * @return Le port d'écoute.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepte les connexions jusqu'à la fermeture du serveur.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Traite une connexion : évalue chaque ligne reçue et renvoie la valeur courante.
+     *
+     * @param socket La connexion du client.
+     */
+    private void handle(Socket socket) {
+        State state = pool.acquire();
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.equalsIgnoreCase("exit")) {
+                    break;
+                }
+                out.write(evaluateLine(line, state));
+                out.write('\n');
+                if (!in.ready()) {
+                    out.flush();  // regroupe les réponses des requêtes déjà reçues
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+        } finally {
+            pool.release(state);
+        }
+    }
+
+    /**
+     * Évalue tous les jetons d'une ligne. Les lignes déjà reçues, sur n'importe quelle
+     * connexion, sont retrouvées dans le cache sans nouvelle analyse. L'erreur d'une ligne
+     * précédente, déjà renvoyée, est acquittée : la pile et la valeur courante sont conservées.
+     *
+     * @param line  La ligne reçue.
+     * @param state L'état de la connexion.
+     * @return La réponse à renvoyer au client.
+     */
+    private String evaluateLine(String line, State state) {
+        state.dismissError();
+        try {
+            cache.get(line).execute(state);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return state.getValueString();
+    }
+
+    /**
+     * Ferme le serveur ; les connexions en cours se terminent normalement.
+     *
+     * @throws IOException si la fermeture échoue.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdown();
+    }
+
+    /**
+     * Lance le serveur.
+     *
+     * @param args Port d'écoute optionnel (par défaut {@value #DEFAULT_PORT}).
+     * @throws IOException si le serveur ne peut pas démarrer.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        try (CalculatorServer server = new CalculatorServer(port)) {
+            System.out.println("Calculator server listening on port " + server.getPort());
+            server.serve();
+        }
+    }
+}
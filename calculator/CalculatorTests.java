@@ -5,11 +5,45 @@
 
 package calculator;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 public class CalculatorTests {
 
     public static void main(String[] args) {
         // Créer une instance de la classe State pour gérer l'état de la calculatrice
-        State state = State.getState();
+        State state = new State();
         System.out.println("=== Tests Améliorés de la Calculatrice ===");
 
         // Fonction utilitaire pour tester les résultats
@@ -25,56 +59,583 @@ public class CalculatorTests {
 
 
             // Étape 2 : Addition (10 + 5)
-            new Addition().execute();
+            new Addition().execute(state);
             state.pushToStack(state.value());
             testResult(state.stackToString(), "[15.0]", "Étape 2 - Addition (10 + 5)");
 
             // Étape 3 : Empiler une nouvelle valeur et multiplier
             state.setValue(3.0);
             state.pushToStack(state.value());
-            new Multiplication().execute(); // Résultat * 3
+            new Multiplication().execute(state); // Résultat * 3
             state.pushToStack(state.value());
             testResult(state.stackToString(), "[45.0]", "Étape 3 - Multiplication par 3");
 
             // Étape 4 : Diviser par une nouvelle valeur
             state.setValue(9.0);
             state.pushToStack(state.value());
-            new Division().execute(); // Résultat / 9
+            new Division().execute(state); // Résultat / 9
             state.pushToStack(state.value());
             testResult(state.stackToString(), "[5.0]", "Étape 4 - Division par 9");
 
             // Étape 5 : Racine carrée
             state.setValue(4.0);
             state.pushToStack(state.value());
-            new SquareRoot().execute();
+            new SquareRoot().execute(state);
             state.pushToStack(state.value());
             testResult(state.stackToString(), "[2.0, 5.0]", "Étape 5 - Racine carrée de 4");
 
             // Étape 6 : Mise au carré
-            new Square().execute();
+            new Square().execute(state);
             state.pushToStack(state.value());
             testResult(state.stackToString(), "[4.0, 5.0]", "Étape 6 - Mise au carré");
 
             // Étape 7 : Inverse (1/x)
-            new Reciprocal().execute();
+            new Reciprocal().execute(state);
             state.pushToStack(state.value());
             testResult(state.stackToString(), "[0.25, 5.0]", "Étape 7 - Inverse (1/4)");
 
             // Étape 8 : Combinaison complexe
             state.setValue(2.0);
             state.pushToStack(state.value());
-            new Multiplication().execute(); // Résultat * 2
+            new Multiplication().execute(state); // Résultat * 2
             state.pushToStack(state.value());
             state.setValue(5.0);
             state.pushToStack(state.value());
-            new Subtraction().execute(); // Résultat - 5
+            new Subtraction().execute(state); // Résultat - 5
             state.pushToStack(state.value());
             testResult(state.stackToString(), "[-4.5, 5.0]", "Étape 8 - Combinaison complexe");
 
             // Étape 9 : Réinitialisation de la pile
-            new Clear().execute();
+            new Clear().execute(state);
             testResult(state.stackToString(), "[]", "Étape 9 - Réinitialisation (Clear)");
 
+            // Étape 10 : Pile primitive de doubles
+            DoubleStack doubles = new DoubleStack();
+            for (int i = 1; i <= 12; i++) {
+                doubles.push(i);  // dépasse la capacité initiale
+            }
+            doubles.pop();
+            testResult(doubles.peek() + " " + doubles.size() + " " + doubles.toArray()[0],
+                    "11.0 11 1.0", "Étape 10 - DoubleStack (push/pop/peek/toArray)");
+
+            // Étape 11 : Sessions indépendantes exécutées en parallèle
+            StatePool pool = new StatePool(4);
+            Map<String, Operator> commands = Calculator.createCommandMap();
+            List<Callable<String>> sessions = new ArrayList<>();
+            for (int i = 1; i <= 8; i++) {
+                int n = i;
+                Program add = Program.parse(n + " +", commands);
+                sessions.add(() -> pool.withState(s -> {
+                    Program.parse("0", commands).execute(s);
+                    for (int k = 0; k < 1000; k++) {
+                        add.execute(s);
+                    }
+                    return s.getValueString();
+                }));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            StringBuilder results = new StringBuilder();
+            for (Future<String> result : executor.invokeAll(sessions)) {
+                results.append(result.get()).append(' ');
+            }
+            executor.shutdown();
+            testResult(results.toString().trim(), "1000 2000 3000 4000 5000 6000 7000 8000",
+                    "Étape 11 - Sessions parallèles (StatePool)");
+
+            // Étape 12 : Programme compilé en bytecode, identique à l'interpréteur
+            StringBuilder compiled = new StringBuilder();
+            String[] formulas = {"2 3 + 4 *", "* sqrt inv", "- square 0.5 /", "1 2 clear 3 +", "/ inv"};
+            double[][] inputs = {{9, 4}, {-1, 4}, {0, 0}, {2.5, -0.5}};
+            for (String formula : formulas) {
+                Program program = Program.parse(formula, commands);
+                CompiledProgram code = ProgramCompiler.compile(program);
+                for (double[] in : inputs) {
+                    compiled.append(sameResult(program, code, in) ? '=' : '!');
+                }
+            }
+            testResult(compiled.toString(), "====================", "Étape 12 - Compilation (ProgramCompiler)");
+
+            // Étape 13 : Cache LRU des programmes
+            ProgramCache cache = new ProgramCache(2, commands);
+            cache.get("1 2 +");
+            cache.get("  1   2 + ");  // même expression une fois normalisée
+            cache.get("3 SQRT");
+            cache.get("1 2 +");       // devient la plus récente
+            cache.get("4 inv");       // évince "3 sqrt"
+            cache.get("3 sqrt");
+            testResult(cache.hits() + " " + cache.misses() + " " + cache.evictions() + " " + cache.size(),
+                    "2 4 2 2", "Étape 13 - Cache de programmes (ProgramCache)");
+
+            // Étape 14 : Évaluation en colonnes, erreurs signalées ligne par ligne
+            int rows = 3000;
+            double[] x = new double[rows];
+            double[] y = new double[rows];
+            for (int r = 0; r < rows; r++) {
+                x[r] = r == 1500 ? Double.NaN : r % 7 - 3;  // un NaN n'est pas une erreur
+                y[r] = r % 5;
+            }
+            StringBuilder columnar = new StringBuilder();
+            for (String formula : new String[] {"/ 2 +", "* sqrt inv", "- square 0.5 /", "1 0 / +", "2 3 *",
+                    "-4 sqrt +", "0 inv *"}) {
+                Program program = Program.parse(formula, commands);
+                ColumnarEvaluator.Result result = ColumnarEvaluator.evaluate(program, x, y);
+                boolean same = true;
+                for (int r = 0; r < rows; r++) {
+                    try {
+                        double expected = program.evaluate(new double[] {x[r], y[r]});
+                        same &= !result.isError(r) && Double.compare(expected, result.values()[r]) == 0;
+                    } catch (ArithmeticException e) {
+                        same &= result.isError(r);
+                    }
+                }
+                columnar.append(same ? '=' : '!');
+            }
+            testResult(columnar.toString(), "=======", "Étape 14 - Évaluation en colonnes (ColumnarEvaluator)");
+
+            // Étape 15 : Lexer, jetons à cheval sur des tampons d'un octet
+            String source = "3.14159 -0 0.1 -12.000 9007199254740993 123456789.987654321 SQRT + x1 -\n";
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            int[] position = {0};
+            Lexer lexer = new Lexer(() -> position[0] < bytes.length
+                    ? ByteBuffer.wrap(bytes, position[0]++, 1) : null, new String[] {"sqrt", "+", "-"});
+            StringBuilder tokens = new StringBuilder();
+            for (int token = lexer.next(); token != Lexer.EOF; token = lexer.next()) {
+                if (token == Lexer.NUMBER) {
+                    tokens.append(Double.compare(lexer.number(), Double.parseDouble(lexer.text())) == 0 ? 'n' : '!');
+                } else {
+                    tokens.append(token == Lexer.WORD ? (char) ('0' + lexer.keyword()) : '?');
+                }
+            }
+            testResult(tokens.toString(), "nnnnnn01?2", "Étape 15 - Analyse lexicale (Lexer)");
+
+            // Étape 16 : Fichier projeté en mémoire par petites tranches
+            Path file = Files.createTempFile("calculator", ".rpn");
+            Files.writeString(file, "1.5 2.25 +\n10 * print\n144 sqrt\n");
+            StringWriter batchOutput = new StringWriter();
+            try (MappedSource mapped = new MappedSource(file, 3)) {
+                Calculator.runBatch(new Lexer(mapped, Calculator.batchKeywords()), batchOutput);
+            } finally {
+                Files.delete(file);
+            }
+            testResult(batchOutput.toString().replace('\n', ' '), "37.5 [12.0, 37.5] ",
+                    "Étape 16 - Lecture projetée en mémoire (MappedSource)");
+
+            // Étape 17 : Suivi des éléments modifiés pour le rafraîchissement incrémental
+            State view = new State();
+            for (int i = 1; i <= 5; i++) {
+                view.pushToStack(i);
+            }
+            view.markStackSeen();
+            new Addition().execute(view);  // retire 5 et 4
+            view.pushToStack(view.value());
+            int low = view.markStackSeen();
+            testResult(low + " " + view.markStackSeen() + " " + view.stackValueAt(3),
+                    "3 4 9.0", "Étape 17 - Niveau bas de la pile (markStackSeen)");
+
+            // Étape 18 : Affichage limité au sommet d'une pile profonde
+            State deep = new State();
+            for (int i = 1; i <= 100_000; i++) {
+                deep.pushToStack(i);
+            }
+            testResult(deep.stackToString(3) + " " + deep.stackToString(0) + " " + new State().stackToString(3),
+                    "[100000.0, 99999.0, 99998.0, ...] (100000 values) [...] (100000 values) []",
+                    "Étape 18 - Affichage limité de la pile (stackToString)");
+
+            // Étape 19 : Précision adaptative, repli en BigDecimal seulement si nécessaire
+            AdaptiveArithmetic exact = new AdaptiveArithmetic(MathContext.DECIMAL64);
+            AdaptiveArithmetic bounded = new AdaptiveArithmetic(MathContext.DECIMAL64, 1e-12);
+            StringBuilder adaptive = new StringBuilder();
+            adaptive.append(exact.evaluate(Program.parse("0.1 0.2 +", commands)).toPlainString()).append(' ');
+            adaptive.append(exact.evaluate(Program.parse("+ 4 / square", commands),
+                    new BigDecimal("1.5"), new BigDecimal("2.5")).toPlainString()).append(' ');
+            adaptive.append(exact.evaluate(Program.parse("1 3 / 3 *", commands)).toPlainString()).append(' ');
+            adaptive.append(bounded.evaluate(Program.parse("1 3 /", commands)).toPlainString()).append(' ');
+            adaptive.append(exact.fastOperations()).append('/').append(exact.slowOperations())
+                    .append('/').append(exact.fallbacks()).append(' ')
+                    .append(bounded.fastOperations()).append('/').append(bounded.slowOperations());
+            testResult(adaptive.toString(), "0.3 1 0.9999999999999999 0.3333333333333333 3/3/1 1/0",
+                    "Étape 19 - Précision adaptative (AdaptiveArithmetic)");
+
+            // Étape 20 : Pile persistante et historique annuler / rétablir
+            PersistentStack versions = PersistentStack.empty();
+            boolean indexed = true;
+            for (int i = 0; i < 1000; i++) {
+                versions = versions.push(i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                indexed &= versions.get(i) == i;
+            }
+            PersistentStack branch = versions.pop().pop().push(-1);
+            State undoable = new State();
+            History history = new History(undoable);
+            Program.parse("1 2 3", commands).execute(undoable);
+            history.record();
+            Program.parse("+ clear", commands).execute(undoable);
+            history.record();
+            history.undo();
+            String undone = undoable.stackToString();
+            history.redo();
+            testResult(indexed + " " + versions.commonSize(branch) + " " + undone + " "
+                            + undoable.stackToString() + " " + history.redo(),
+                    "true 998 [3.0, 2.0, 1.0] [0.0] false", "Étape 20 - Annuler / rétablir (History)");
+
+            // Étape 21 : Journal, instantané et reprise après un arrêt sans fermeture
+            Path journalDirectory = Files.createTempDirectory("journal");
+            State crashed = new State();
+            Journal journal = new Journal(journalDirectory, crashed, 4, 10);
+            journal.execute(Program.parse("1 2 + 3 4 5 * sqrt", commands));  // 16 enregistrements
+            journal.execute(new Digit(7));
+            journal.execute(new MemoryStore());
+            State recovered = new State();
+            try (Journal reopened = new Journal(journalDirectory, recovered, 4, 10)) {
+                reopened.execute(new MemoryRecall());
+                testResult(reopened.replayed() + " " + recovered.stackToString() + " " + recovered.getValueString(),
+                        "8 [4.47213595499958, 3.0, 3.0] 7", "Étape 21 - Reprise depuis le journal (Journal)");
+            } finally {
+                journal.close();
+                for (String name : new String[] {Journal.LOG_FILE, Journal.SNAPSHOT_FILE}) {
+                    Files.deleteIfExists(journalDirectory.resolve(name));
+                }
+                Files.delete(journalDirectory);
+            }
+
+            // Étape 22 : Point de contrôle binaire et import / export CSV
+            State saved = new State();
+            for (int i = 0; i < 1_000_000; i++) {
+                saved.pushToStack(i * 0.5);
+            }
+            saved.setValue(7.25);
+            saved.storeValue();
+            saved.setError(Division.ERROR);
+            Path checkpoint = Files.createTempFile("calculator", ".bin");
+            State loaded = new State();
+            StringWriter csv = new StringWriter();
+            try {
+                Checkpoint.save(saved, checkpoint, 42);
+                long sequence = Checkpoint.load(checkpoint, loaded);
+                new ClearError().execute(loaded);
+                new MemoryRecall().execute(loaded);
+                State small = new State();
+                Checkpoint.importCsv(new StringReader("1.5, 2\n\n-3,4e2\n"), small);
+                Checkpoint.exportCsv(small, csv);
+                testResult(sequence + " " + Arrays.equals(saved.stackToArray(), loaded.stackToArray())
+                                + " " + loaded.getValueString() + " " + csv.toString().replace('\n', ' '),
+                        "42 true 7.25 1.5 2.0 -3.0 400.0 ", "Étape 22 - Point de contrôle et CSV (Checkpoint)");
+            } finally {
+                Files.delete(checkpoint);
+            }
+
+            // Étape 23 : Interpréteur à codes d'opération, comparé à l'exécution par opérateurs
+            boolean sameState = true;
+            for (String line : new String[] {"1 2 + 3 *", "4 0 /", "+ + + +", "2 sqrt -1 sqrt", "5 clear 3 +",
+                    "9 inv 0 inv square", "clear sqrt 2 -"}) {
+                State expected = new State();
+                State actual = new State();
+                actual.usePersistentStack();
+                for (State s : new State[] {expected, actual}) {
+                    s.pushToStack(7);
+                    s.pushToStack(8);
+                }
+                Program program = Program.parse(line, commands);
+                program.execute(expected);
+                OpcodeProgram.decode(program).execute(actual);
+                sameState &= expected.stackToString().equals(actual.stackToString())
+                        && expected.getValueString().equals(actual.getValueString());
+            }
+            OpcodeProgram formula = OpcodeProgram.decode(Program.parse("+ 4 * sqrt", commands));
+            String divisionError;
+            try {
+                OpcodeProgram.decode(Program.parse("1 0 /", commands)).evaluate(new double[0]);
+                divisionError = "none";
+            } catch (ArithmeticException e) {
+                divisionError = e.getMessage();
+            }
+            StringWriter direct = new StringWriter();
+            StringWriter interpreted = new StringWriter();
+            String script = "1 2 + print 3 * 0 / print dump 4 inv clear 5 6 -";
+            Calculator.runBatch(Lexer.of(script, Calculator.batchKeywords()), direct, 4, false);
+            Calculator.runBatch(Lexer.of(script, Calculator.batchKeywords()), interpreted, 4, true);
+            testResult(sameState + " " + formula.evaluate(new double[] {1, 3}) + " " + divisionError
+                            + " " + direct.toString().equals(interpreted.toString()),
+                    "true 4.0 " + Division.ERROR + " true", "Étape 23 - Interpréteur à codes d'opération (OpcodeProgram)");
+
+            // Étape 24 : Évaluation parallèle de lignes indépendantes, comparée à l'évaluation séquentielle
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < 2000; i++) {
+                lines.append(i).append(" 4 / ").append(i % 7).append(i % 5 == 0 ? " /\n" : " +\n");
+            }
+            lines.append("\n1 2 pow\n 3  square");
+            byte[] linesBytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+            StringWriter sequential = new StringWriter();
+            StringWriter parallel = new StringWriter();
+            new ParallelBatch(1, 64).run(new ByteArrayInputStream(linesBytes), sequential);
+            new ParallelBatch(3, 64).run(new ByteArrayInputStream(linesBytes), parallel);
+            String[] lineResults = parallel.toString().split("\n", -1);
+            testResult(sequential.toString().equals(parallel.toString()) + " " + lineResults.length + " " + lineResults[1]
+                            + " " + lineResults[0] + " " + lineResults[2000] + " " + lineResults[2001] + " " + lineResults[2002],
+                    "true 2004 1.25 " + Division.ERROR + "  Unknown command: pow 9",
+                    "Étape 24 - Évaluation parallèle des lignes (ParallelBatch)");
+
+            // Étape 25 : Expressions infixes traduites en RPN
+            boolean sameProgram = true;
+            String[][] pairs = {{"(1 + 2) * 3", "1 2 + 3 *"}, {"1 - 2 - 3", "1 2 - 3 -"}, {"8 / 2 / 2", "8 2 / 2 /"},
+                    {"-2 * 3 + sqrt(16) / -4", "-2 3 * 16 sqrt -4 / +"}, {"inv(4) - -square(1 + 2)", "4 inv 1 2 + square -1 * -"},
+                    {"-(2 - 5)", "2 5 - -1 *"}};
+            for (String[] pair : pairs) {
+                State infixState = new State();
+                State rpnState = new State();
+                InfixParser.parse(pair[0], commands).execute(infixState);
+                Program.parse(pair[1], commands).execute(rpnState);
+                sameProgram &= infixState.stackToString().equals(rpnState.stackToString());
+            }
+            StringBuilder infixErrors = new StringBuilder();
+            for (String malformed : new String[] {"(1 + 2", "3 4", "1 +", "pow(2)", ")"}) {
+                try {
+                    InfixParser.parse(malformed, commands);
+                    infixErrors.append("none;");
+                } catch (IllegalArgumentException e) {
+                    infixErrors.append(e.getMessage(), 0, e.getMessage().indexOf(" at ")).append(';');
+                }
+            }
+            ProgramCache infixCache = new ProgramCache(4, commands);
+            testResult(sameProgram + " " + infixCache.get("= 2 * (3 + 4)").evaluate(new double[0]) + " " + infixErrors,
+                    "true 14.0 Missing ')';Expected an operator;Expected an operand;Unknown function;Expected an operand;",
+                    "Étape 25 - Expressions infixes (InfixParser)");
+
+            // Étape 26 : Pliage des constantes et suppression des éléments neutres
+            boolean sameValues = true;
+            StringBuilder sizes = new StringBuilder();
+            ProgramCache optimizedCache = new ProgramCache(16, commands);
+            double[][] specials = {{1.5, -2}, {-0.0, 0.0}, {Double.NaN, 3}, {Double.POSITIVE_INFINITY, -0.0}};
+            for (String formulaText : new String[] {"1 * 2 3 * sqrt +", "-0 + 1 / 0 -", "-1 * -1 * 1 *", "1 0 / +",
+                    "2 square inv * 4 -1 sqrt", "+ clear 2 3 +", "1 swap"}) {
+                Program original;
+                try {
+                    original = Program.parse(formulaText, commands);
+                } catch (IllegalArgumentException e) {
+                    sizes.append("? ");
+                    continue;
+                }
+                Program optimized = Optimizer.optimize(original);
+                sizes.append(original.size()).append('>').append(optimized.size()).append(' ');
+                for (double[] special : specials) {
+                    sameValues &= sameResult(original, optimizedCache.getCompiled(formulaText), special)
+                            && sameResult(optimized, optimizedCache.getCompiled(formulaText), special);
+                }
+            }
+            testResult(sameValues + " " + sizes + Optimizer.optimize(Program.parse("2 3 * sqrt 1 0 / +", commands)),
+                    "true 7>2 6>0 6>0 4>4 7>5 5>3 ? 2.449489742783178 1.0 0.0 / +",
+                    "Étape 26 - Optimisation des programmes (Optimizer)");
+
+            // Étape 27 : Mesures des opérateurs, au format Prometheus et par JMX
+            Metrics.reset();
+            Operator measured = new Division();
+            Metrics.executed(measured, 3, 5);
+            Metrics.failed(measured);
+            Metrics.interpreted(Opcodes.ADD, false);
+            String scrape = Metrics.scrape();
+            Metrics.register();
+            Object depth = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(Metrics.OBJECT_NAME), "MaxStackDepth");
+            testResult(Metrics.ENABLED + " " + depth
+                            + " " + scrape.contains("calculator_operator_invocations_total{operator=\"division\"} 1\n")
+                            + " " + scrape.contains("calculator_operator_errors_total{operator=\"division\"} 1\n")
+                            + " " + scrape.contains("calculator_operator_latency_seconds_bucket{operator=\"division\",le=\"2.0E-9\"} 0\n")
+                            + " " + scrape.contains("calculator_operator_latency_seconds_bucket{operator=\"division\",le=\"4.0E-9\"} 1\n")
+                            + " " + scrape.contains("calculator_operator_invocations_total{operator=\"addition\"} 1\n"),
+                    "false 5 true true true true true", "Étape 27 - Mesures des opérateurs (Metrics)");
+
+            // Étape 28 : Événements Flight Recorder des opérateurs et des erreurs
+            Path flight = Files.createTempFile("calculator", ".jfr");
+            try (Recording recording = new Recording()) {
+                recording.enable("calculator.OperatorExecution");
+                recording.enable("calculator.StateError");
+                recording.start();
+                State recorded = new State();
+                recorded.pushToStack(2);
+                recorded.pushToStack(3);
+                new Addition().run(recorded);
+                recorded.pushToStack(recorded.value());
+                recorded.pushToStack(0);
+                new Division().run(recorded);
+                new Addition().run(recorded);
+                recording.stop();
+                recording.dump(flight);
+            }
+            StringBuilder outcomes = new StringBuilder();
+            for (RecordedEvent event : RecordingFile.readAllEvents(flight)) {
+                if (event.getEventType().getName().equals("calculator.OperatorExecution")) {
+                    outcomes.append(event.getString("operator")).append(' ').append(event.getInt("stackBefore"))
+                            .append('>').append(event.getInt("stackAfter")).append(' ')
+                            .append(event.getString("outcome")).append(';');
+                } else {
+                    outcomes.append(event.getString("message")).append(';');
+                }
+            }
+            Files.delete(flight);
+            testResult(outcomes.toString(),
+                    "Addition 2>0 ok;" + Division.ERROR + ";Division 2>0 error;" + Operator.UNDERFLOW + ";Addition 0>0 underflow;",
+                    "Étape 28 - Événements Flight Recorder");
+
+            // Étape 29 : Codes d'état des erreurs de calcul, sans exception
+            OpcodeProgram guarded = OpcodeProgram.decode(new Program(
+                    new Operator[]{new Division(), new SquareRoot()}, new double[]{0, 0}));
+            double[] guardedResult = new double[1];
+            int divisionStatus = guarded.evaluate(new double[]{1, 0}, guardedResult);
+            int rootStatus = guarded.evaluate(new double[]{-8, 2}, guardedResult);
+            int okStatus = guarded.evaluate(new double[]{8, 2}, guardedResult);
+            State checked = new State();
+            checked.pushToStack(1);
+            new Reciprocal().run(checked);
+            String thrown;
+            try {
+                guarded.evaluate(new double[]{1, 0});
+                thrown = "none";
+            } catch (ArithmeticException e) {
+                thrown = e.getMessage();
+            }
+            testResult(divisionStatus + " " + rootStatus + " " + okStatus + " " + guardedResult[0]
+                            + " " + new Reciprocal().status(0) + " " + Status.message(Status.RECIPROCAL_OF_ZERO).equals(Reciprocal.ERROR)
+                            + " " + checked.getValueString() + " " + thrown,
+                    Status.DIVISION_BY_ZERO + " " + Status.NEGATIVE_SQUARE_ROOT + " " + Status.OK + " 2.0 "
+                            + Status.RECIPROCAL_OF_ZERO + " true 1 " + Division.ERROR,
+                    "Étape 29 - Codes d'état des erreurs (Status)");
+
+            // Étape 30 : Manque d'opérandes signalé comme erreur d'état et aux diagnostics
+            List<String> diagnosed = new ArrayList<>();
+            Diagnostics.reset();
+            Diagnostics.setSink(diagnosed::add);
+            State starved = new State();
+            starved.pushToStack(4);
+            new Multiplication().run(starved);
+            String starvedValue = starved.getValueString();
+            State interpretedStarved = new State();
+            OpcodeProgram.decode(new Program(new Operator[]{new SquareRoot()}, new double[]{0})).execute(interpretedStarved);
+            Diagnostics.flush();
+            Diagnostics.setSink(null);
+            Diagnostics.log("ignored");
+            testResult(starvedValue + " | " + interpretedStarved.getValueString() + " | " + Diagnostics.underflows()
+                            + " " + Diagnostics.dropped() + " | " + String.join("; ", diagnosed),
+                    Operator.UNDERFLOW + " | " + Operator.UNDERFLOW + " | 2 0 | "
+                            + Operator.UNDERFLOW + " (Multiplication, stack size 1); "
+                            + Operator.UNDERFLOW + " (SquareRoot, stack size 0)",
+                    "Étape 30 - Diagnostics des opérateurs");
+
+            // Étape 31 : Évaluation parallèle d'un fichier projeté, avec des lignes à cheval sur les tranches
+            Path linesFile = Files.createTempFile("calculator", ".rpn");
+            Files.write(linesFile, linesBytes);
+            StringWriter mapped = new StringWriter();
+            StringWriter narrow = new StringWriter();
+            new ParallelBatch(3, 64).run(linesFile, mapped);
+            new ParallelBatch(2, 5).run(linesFile, narrow);  // tranches plus courtes que les lignes
+            Files.delete(linesFile);
+            testResult(mapped.toString().equals(sequential.toString()) + " " + narrow.toString().equals(sequential.toString()),
+                    "true true", "Étape 31 - Évaluation parallèle d'un fichier (ParallelBatch)");
+
+            // Étape 32 : Reprise d'un journal compacté dont la dernière écriture a été interrompue
+            Path tornDirectory = Files.createTempDirectory("journal");
+            State beforeCrash = new State();
+            Journal torn = new Journal(tornDirectory, beforeCrash, 1, 1_000_000);
+            torn.execute(Program.parse("1 2 3 4 5 6 7 8 + + + + + + +", commands));  // enregistrements anciens
+            torn.snapshot();
+            torn.execute(Program.parse("5 square", commands));  // VALUE, PUSH, SQUARE, PUSH : 12 octets
+            Path tornLog = tornDirectory.resolve(Journal.LOG_FILE);
+            byte[] tornBytes = Files.readAllBytes(tornLog);
+            boolean erased = true;
+            for (int i = 16 + 12; i < 256; i++) {
+                erased &= tornBytes[i] == Opcodes.END;
+            }
+            // Arrêt au milieu de l'écriture d'une valeur : marqueur de fin et début du nombre écrits
+            try (FileChannel tornChannel = FileChannel.open(tornLog, StandardOpenOption.WRITE)) {
+                tornChannel.write(ByteBuffer.wrap(new byte[] {0x40, 0x45, 0x00, 0x00}), 16 + 12 + 1);
+            }
+            State afterCrash = new State();
+            try (Journal reopenedTorn = new Journal(tornDirectory, afterCrash, 1, 1_000_000)) {
+                testResult(erased + " " + reopenedTorn.replayed() + " " + afterCrash.stackToString(),
+                        "true 4 " + beforeCrash.stackToString(), "Étape 32 - Journal compacté interrompu (Journal)");
+            } finally {
+                torn.close();
+                for (String name : new String[] {Journal.LOG_FILE, Journal.SNAPSHOT_FILE}) {
+                    Files.deleteIfExists(tornDirectory.resolve(name));
+                }
+                Files.delete(tornDirectory);
+            }
+
+            // Étape 33 : Une erreur du mode batch n'est écrite que par un seul print
+            StringWriter printedDirect = new StringWriter();
+            StringWriter printedInterpreted = new StringWriter();
+            String printScript = "1 0 / print 2 3 + print 4 print";
+            Calculator.runBatch(Lexer.of(printScript, Calculator.batchKeywords()), printedDirect, 8, false);
+            Calculator.runBatch(Lexer.of(printScript, Calculator.batchKeywords()), printedInterpreted, 8, true);
+            testResult(printedDirect + "|" + printedInterpreted,
+                    Division.ERROR + "\n5\n4\n[4.0, 5.0, 0.0]\n|" + Division.ERROR + "\n5\n4\n[4.0, 5.0, 0.0]\n",
+                    "Étape 33 - Erreur acquittée par print (mode batch)");
+
+            // Étape 34 : Une erreur du serveur ne concerne que la ligne qui l'a produite
+            try (CalculatorServer server = new CalculatorServer(0)) {
+                Thread serving = new Thread(server::serve);
+                serving.setDaemon(true);
+                serving.start();
+                try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                     BufferedReader replies = new BufferedReader(
+                             new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                     Writer requests = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)) {
+                    requests.write("1 0 /\n2 3 +\n4 *\nexit\n");
+                    requests.flush();
+                    testResult(replies.readLine() + "|" + replies.readLine() + "|" + replies.readLine(),
+                            Division.ERROR + "|5|20", "Étape 34 - Erreur acquittée par ligne (CalculatorServer)");
+                }
+            }
+
+            // Étape 35 : Chargement et copie en bloc d'une pile persistante
+            State persistentSaved = new State();
+            persistentSaved.usePersistentStack();
+            for (int i = 0; i < 100_000; i++) {
+                persistentSaved.pushToStack(i * 0.25);
+            }
+            State persistentLoaded = new State();
+            persistentLoaded.usePersistentStack();
+            persistentLoaded.pushToStack(-2);
+            Path persistentCheckpoint = Files.createTempFile("calculator", ".bin");
+            try {
+                Checkpoint.save(persistentSaved, persistentCheckpoint, 3);
+                Checkpoint.load(persistentCheckpoint, persistentLoaded);
+                DoubleBuffer window = DoubleBuffer.allocate(3).put(-1);
+                int copied = persistentLoaded.copyStackTo(99_998, window);
+                testResult(Arrays.equals(persistentSaved.stackToArray(), persistentLoaded.stackToArray())
+                                + " " + copied + " " + Arrays.toString(window.array())
+                                + " " + persistentLoaded.stackValueAt(40_000),
+                        "true 2 [-1.0, 24999.5, 24999.75] 10000.0",
+                        "Étape 35 - Chargement et copie en bloc (PersistentStack)");
+            } finally {
+                Files.delete(persistentCheckpoint);
+            }
+
+            // Étape 36 : Un point de contrôle corrompu est refusé sans modifier l'état
+            State intact = new State();
+            intact.pushToStack(9);
+            intact.setValue(3);
+            Path corrupt = Files.createTempFile("calculator", ".bin");
+            StringBuilder rejected = new StringBuilder();
+            try {
+                Checkpoint.save(intact, corrupt);
+                for (int scalarsLength : new int[]{-1, 1 << 20}) {
+                    try (FileChannel channel = FileChannel.open(corrupt, StandardOpenOption.WRITE)) {
+                        channel.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                                .putInt(scalarsLength).flip(), 24);
+                    }
+                    try {
+                        Checkpoint.load(corrupt, intact);
+                    } catch (IOException e) {
+                        rejected.append(e.getMessage().startsWith("Corrupt")).append(' ');
+                    }
+                }
+            } finally {
+                Files.delete(corrupt);
+            }
+            testResult(rejected + Arrays.toString(intact.stackToArray()) + " " + intact.getValueString(),
+                    "true true [9.0] 3", "Étape 36 - Point de contrôle corrompu refusé (Checkpoint)");
+
         } catch (Exception e) {
             System.out.println("Une erreur inattendue s'est produite: " + e.getMessage());
         }
@@ -82,6 +643,30 @@ public class CalculatorTests {
         System.out.println("=== Fin des Tests Améliorés ===");
     }
 
+    /**
+     * Compare l'évaluation interprétée et compilée d'un programme, exceptions comprises.
+     *
+     * @param program Le programme interprété
+     * @param code    Le même programme compilé
+     * @param inputs  Les entrées
+     * @return true si les deux évaluations donnent le même résultat ou le même message d'erreur
+     */
+    private static boolean sameResult(Program program, CompiledProgram code, double[] inputs) {
+        String expected;
+        String actual;
+        try {
+            expected = String.valueOf(program.evaluate(inputs));
+        } catch (ArithmeticException e) {
+            expected = e.getMessage();
+        }
+        try {
+            actual = String.valueOf(code.eval(inputs));
+        } catch (ArithmeticException e) {
+            actual = e.getMessage();
+        }
+        return expected.equals(actual);
+    }
+
     /**
      * Fonction utilitaire pour tester un résultat et afficher un message de succès ou d'échec.
      *
@@ -0,0 +1,236 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sauvegarde et restauration d'un {@link State} dans un format binaire compact,
+ * ainsi qu'import et export de la pile au format CSV.
+ *
+ * Un point de contrôle contient un en-tête, les champs scalaires de l'état (valeur courante,
+ * mémoire, erreur, opérateur courant et indicateurs) puis le contenu brut de la pile : une suite
+ * de doubles IEEE-754 petit-boutistes, de la base vers le sommet, alignée sur 8 octets.
+ * <pre>
+ *  0  int   magique "RPNC"
+ *  4  int   version
+ *  8  long  numéro de séquence (celui du {@link Journal}, 0 hors journal)
+ * 16  long  nombre de valeurs de la pile
+ * 24  int   longueur des champs scalaires
+ * 28  ...   champs scalaires ({@link State#writeScalarsTo}), puis remplissage jusqu'à 8 octets
+ *     ...   valeurs de la pile
+ * </pre>
+ * La pile est écrite et relue au travers de projections en mémoire, par tranches d'au plus
+ * {@value #CHUNK_SIZE} octets, et copiée d'un bloc depuis ou vers la pile de l'état :
+ * aucune valeur ne passe par un objet ou une chaîne de caractères.
+ */
+public final class Checkpoint {
+
+    /**
+     * Taille maximale d'une tranche projetée, multiple de la taille d'un double (1 Go).
+     */
+    static final int CHUNK_SIZE = 1 << 30;
+
+    private static final int MAGIC = 0x52504E43;  // "RPNC"
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER = 28;
+    private static final int CSV_BLOCK = 4096;
+
+    private Checkpoint() {}
+
+    /**
+     * Écrit un point de contrôle de l'état, puis le force sur disque.
+     *
+     * @param state    L'état à sauvegarder.
+     * @param file     Le fichier, remplacé s'il existe.
+     * @param sequence Un numéro de séquence conservé avec l'état.
+     * @throws IOException en cas d'erreur d'écriture.
+     */
+    public static void save(State state, Path file, long sequence) throws IOException {
+        ByteArrayOutputStream scalars = new ByteArrayOutputStream(64);
+        state.writeScalarsTo(new DataOutputStream(scalars));
+        int size = state.stackSize();
+        long offset = align(FIXED_HEADER + scalars.size());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(size).putInt(scalars.size());
+            header.put(scalars.toByteArray()).clear();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            int from = 0;
+            for (long position = offset; from < size; ) {
+                long length = Math.min(CHUNK_SIZE, (long) (size - from) * Double.BYTES);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+                from += state.copyStackTo(from, chunk.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+                chunk.force();
+                position += length;
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Écrit un point de contrôle de l'état, sans numéro de séquence.
+     *
+     * @param state L'état à sauvegarder.
+     * @param file  Le fichier, remplacé s'il existe.
+     * @throws IOException en cas d'erreur d'écriture.
+     */
+    public static void save(State state, Path file) throws IOException {
+        save(state, file, 0);
+    }
+
+    /**
+     * Remplace l'état par celui d'un point de contrôle. Le fichier est projeté en mémoire
+     * et les valeurs de la pile sont copiées d'un bloc dans la pile de l'état.
+     *
+     * L'en-tête, les champs scalaires et la taille du fichier sont vérifiés avant de toucher
+     * à l'état : un fichier invalide laisse l'état inchangé.
+     *
+     * @param file  Le fichier à lire.
+     * @param state L'état à remplacer.
+     * @return Le numéro de séquence enregistré avec l'état.
+     * @throws IOException en cas d'erreur de lecture ou si le fichier n'est pas un point de contrôle valide.
+     */
+    public static long load(Path file, State state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, FIXED_HEADER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a calculator checkpoint: " + file);
+            }
+            long sequence = header.getLong();
+            long size = header.getLong();
+            int scalarsLength = header.getInt();
+            if (scalarsLength < 0 || scalarsLength > channel.size() - FIXED_HEADER) {
+                throw new IOException("Corrupt calculator checkpoint: " + file);
+            }
+            long offset = align(FIXED_HEADER + scalarsLength);
+            if (size < 0 || size > Integer.MAX_VALUE - 8 || channel.size() < offset + size * Double.BYTES) {
+                throw new IOException("Truncated calculator checkpoint: " + file);
+            }
+            byte[] scalars = read(channel, FIXED_HEADER, scalarsLength).array();
+            new State().readScalarsFrom(new DataInputStream(new ByteArrayInputStream(scalars)));  // validation
+
+            List<DoubleBuffer> chunks = new ArrayList<>();
+            for (long position = offset, end = offset + size * Double.BYTES; position < end; ) {
+                long length = Math.min(CHUNK_SIZE, end - position);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                chunks.add(chunk.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+                position += length;
+            }
+
+            state.clear();
+            state.readScalarsFrom(new DataInputStream(new ByteArrayInputStream(scalars)));
+            for (DoubleBuffer chunk : chunks) {
+                state.pushAllToStack(chunk);
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Écrit la pile au format CSV, une valeur par ligne de la base vers le sommet.
+     * Les valeurs sont lues par blocs et écrites une à une, sans construire la chaîne de toute la pile.
+     *
+     * @param state L'état dont la pile est exportée.
+     * @param out   La destination ; elle n'est ni vidée ni fermée.
+     * @throws IOException en cas d'erreur d'écriture.
+     */
+    public static void exportCsv(State state, Writer out) throws IOException {
+        DoubleBuffer block = DoubleBuffer.allocate(CSV_BLOCK);
+        for (int from = 0, size = state.stackSize(); from < size; ) {
+            block.clear();
+            from += state.copyStackTo(from, block);
+            block.flip();
+            while (block.hasRemaining()) {
+                out.write(Double.toString(block.get()));
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Empile les valeurs d'un texte CSV, ligne par ligne et de gauche à droite.
+     * Les champs vides sont ignorés ; les valeurs sont empilées par blocs.
+     *
+     * @param in    La source ; elle n'est pas fermée.
+     * @param state L'état dont la pile reçoit les valeurs.
+     * @return Le nombre de valeurs empilées.
+     * @throws IOException en cas d'erreur de lecture ou de valeur invalide.
+     */
+    public static long importCsv(Reader in, State state) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in, 1 << 16);
+        DoubleBuffer block = DoubleBuffer.allocate(CSV_BLOCK);
+        long count = 0;
+        String line;
+        for (int number = 1; (line = reader.readLine()) != null; number++) {
+            int start = 0;
+            while (start <= line.length()) {
+                int end = line.indexOf(',', start);
+                if (end < 0) {
+                    end = line.length();
+                }
+                String field = line.substring(start, end).trim();
+                if (!field.isEmpty()) {
+                    if (!block.hasRemaining()) {
+                        state.pushAllToStack(block.flip());
+                        block.clear();
+                    }
+                    try {
+                        block.put(Double.parseDouble(field));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid number on line " + number + ": " + field);
+                    }
+                    count++;
+                }
+                start = end + 1;
+            }
+        }
+        state.pushAllToStack(block.flip());
+        return count;
+    }
+
+    /**
+     * Lit une zone du fichier dans un tampon petit-boutiste.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated calculator checkpoint");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Arrondit une position au multiple de 8 supérieur, pour aligner les doubles.
+     */
+    private static long align(long position) {
+        return (position + Double.BYTES - 1) & -Double.BYTES;
+    }
+}
@@ -0,0 +1,351 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Évaluation en colonnes d'un programme RPN sur un grand nombre de lignes.
+ *
+ * Chaque entrée du programme est une colonne ({@code double[]}) ; une instruction est
+ * appliquée à toute une colonne à la fois plutôt que ligne par ligne. Les lignes sont
+ * traitées par blocs de {@value #BLOCK} afin que les colonnes intermédiaires restent en cache.
+ * Les noyaux sont des boucles simples sur des tableaux de double, sans appel ni branchement,
+ * que le compilateur JIT vectorise (SIMD) automatiquement. Les noyaux partiels ne tiennent pas
+ * de masque ligne à ligne dans la boucle, ce qui empêcherait la vectorisation : ils calculent
+ * une réduction (minimum) du domaine, et ne parcourent les lignes pour le masque d'erreurs que
+ * si cette réduction signale une erreur possible.
+ *
+ * Une erreur de domaine (division par zéro, racine d'un négatif, inverse de zéro) ne lève pas
+ * d'exception : la ligne concernée est marquée dans le masque d'erreurs du résultat et sa valeur
+ * vaut NaN, sans interrompre le traitement des autres lignes.
+ */
+public final class ColumnarEvaluator {
+
+    /**
+     * Nombre de lignes traitées par bloc.
+     */
+    static final int BLOCK = 1024;
+
+    private ColumnarEvaluator() {}
+
+    /**
+     * Évalue un programme sur des colonnes d'entrées.
+     *
+     * @param program Le programme à évaluer.
+     * @param columns Une colonne par entrée du programme, toutes de même longueur ;
+     *                la première colonne correspond au bas de la pile.
+     * @return Les valeurs de chaque ligne et le masque des lignes en erreur.
+     * @throws IllegalArgumentException si les colonnes sont trop peu nombreuses ou de longueurs
+     *                                  différentes, ou si le programme contient un opérateur inconnu.
+     * @throws IllegalStateException    si le programme manque d'opérandes après un {@code clear}.
+     */
+    public static Result evaluate(Program program, double[]... columns) {
+        program.checkEvaluable();
+        int inputs = program.requiredInputs();
+        if (columns.length < inputs) {
+            throw new IllegalArgumentException(Program.inputsError(inputs));
+        }
+        int rows = inputs > 0 ? columns[0].length : (columns.length > 0 ? columns[0].length : 0);
+        for (int c = 0; c < inputs; c++) {
+            if (columns[c].length != rows) {
+                throw new IllegalArgumentException("All columns must have the same length");
+            }
+        }
+
+        Result result = new Result(rows);
+        Block block = new Block(program.maxDepth());
+        for (int from = 0; from < rows; from += BLOCK) {
+            int n = Math.min(BLOCK, rows - from);
+            block.run(program, columns, from, n, result);
+        }
+        return result;
+    }
+
+    /**
+     * Résultat d'une évaluation en colonnes.
+     */
+    public static final class Result {
+        private final double[] values;
+        private final boolean[] errors;
+        private int errorCount;
+
+        private Result(int rows) {
+            values = new double[rows];
+            errors = new boolean[rows];
+        }
+
+        /**
+         * Retourne la valeur calculée pour chaque ligne (NaN pour une ligne en erreur).
+         *
+         * @return Les valeurs, une par ligne.
+         */
+        public double[] values() {
+            return values;
+        }
+
+        /**
+         * Retourne le masque des lignes en erreur.
+         *
+         * @return true pour chaque ligne dont l'évaluation a rencontré une erreur de domaine.
+         */
+        public boolean[] errors() {
+            return errors;
+        }
+
+        /**
+         * Indique si une ligne est en erreur.
+         *
+         * @param row L'indice de la ligne.
+         * @return true si la ligne est en erreur.
+         */
+        public boolean isError(int row) {
+            return errors[row];
+        }
+
+        /**
+         * Retourne le nombre de lignes en erreur.
+         *
+         * @return Le nombre de lignes en erreur.
+         */
+        public int errorCount() {
+            return errorCount;
+        }
+    }
+
+    /**
+     * Pile de travail pour un bloc de lignes. Chaque élément est soit une colonne
+     * (tampon de {@value #BLOCK} valeurs), soit un scalaire issu d'un littéral.
+     * Les tampons libérés sont réutilisés d'un bloc à l'autre.
+     */
+    private static final class Block {
+        private final double[][] columns;
+        private final double[] scalars;
+        private final ArrayDeque<double[]> free = new ArrayDeque<>();
+        private final boolean[] mask = new boolean[BLOCK];
+        private int top;
+        private int n;
+
+        Block(int maxDepth) {
+            columns = new double[maxDepth][];
+            scalars = new double[maxDepth];
+        }
+
+        void run(Program program, double[][] inputs, int from, int n, Result result) {
+            this.n = n;
+            Arrays.fill(mask, 0, n, false);
+            for (int c = 0; c < program.requiredInputs(); c++) {
+                double[] column = buffer();
+                System.arraycopy(inputs[c], from, column, 0, n);
+                columns[top++] = column;
+            }
+            for (int i = 0; i < program.size(); i++) {
+                step(program.operator(i), program.literal(i));
+            }
+
+            double[] values = result.values;
+            if (top == 0) {
+                Arrays.fill(values, from, from + n, 0);
+            } else if (columns[top - 1] == null) {
+                Arrays.fill(values, from, from + n, scalars[top - 1]);
+            } else {
+                System.arraycopy(columns[top - 1], 0, values, from, n);
+            }
+            for (int i = 0; i < n; i++) {
+                if (mask[i]) {
+                    values[from + i] = Double.NaN;
+                    result.errors[from + i] = true;
+                    result.errorCount++;
+                }
+            }
+            while (top > 0) {
+                release(--top);
+            }
+        }
+
+        private void step(Operator operator, double literal) {
+            if (operator == null) {
+                columns[top] = null;
+                scalars[top++] = literal;
+            } else if (operator instanceof Clear) {
+                while (top > 0) {
+                    release(--top);
+                }
+                columns[top] = null;
+                scalars[top++] = 0;
+            } else if (operator instanceof BinaryOperation) {
+                binary(operator);
+            } else {
+                unary(operator);
+            }
+        }
+
+        private void binary(Operator operator) {
+            int b = --top;
+            int a = top - 1;
+            if (columns[a] == null && columns[b] == null) {
+                scalars[a] = scalar(operator, scalars[a], scalars[b]);
+                return;
+            }
+            double[] left = column(a);
+            double[] right = column(b);
+            if (operator instanceof Addition) {
+                add(left, right, n);
+            } else if (operator instanceof Subtraction) {
+                subtract(left, right, n);
+            } else if (operator instanceof Multiplication) {
+                multiply(left, right, n);
+            } else if (operator instanceof Division) {
+                divide(left, right, mask, n);
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported operator: " + operator.getClass().getSimpleName());
+            }
+            release(b);
+        }
+
+        private void unary(Operator operator) {
+            int a = top - 1;
+            if (columns[a] == null) {
+                scalars[a] = scalar(operator, scalars[a], 0);
+                return;
+            }
+            double[] column = columns[a];
+            if (operator instanceof Square) {
+                square(column, n);
+                return;
+            }
+            double[] result = buffer();  // l'opérande reste lisible pour le masque d'erreurs
+            if (operator instanceof SquareRoot) {
+                squareRoot(column, result, mask, n);
+            } else if (operator instanceof Reciprocal) {
+                reciprocal(column, result, mask, n);
+            } else {
+                free.push(result);
+                throw new IllegalArgumentException(
+                        "Unsupported operator: " + operator.getClass().getSimpleName());
+            }
+            release(a);
+            columns[a] = result;
+        }
+
+        /**
+         * Calcule une opération entre scalaires ; une erreur marque toutes les lignes du bloc.
+         */
+        private double scalar(Operator operator, double a, double b) {
+            if (operator instanceof BinaryOperation) {
+                if (operator.status(a, b) != Status.OK) {
+                    Arrays.fill(mask, 0, n, true);
+                    return Double.NaN;
+                }
+                return operator.compute(a, b);
+            }
+            if (!(operator instanceof Square || operator instanceof SquareRoot || operator instanceof Reciprocal)) {
+                throw new IllegalArgumentException(
+                        "Unsupported operator: " + operator.getClass().getSimpleName());
+            }
+            UnaryOperation unary = (UnaryOperation) operator;
+            if (unary.status(a) != Status.OK) {
+                Arrays.fill(mask, 0, n, true);
+                return Double.NaN;
+            }
+            return unary.compute(a);
+        }
+
+        /**
+         * Retourne l'élément de pile sous forme de colonne, en diffusant un scalaire si nécessaire.
+         */
+        private double[] column(int index) {
+            if (columns[index] == null) {
+                double[] column = buffer();
+                Arrays.fill(column, 0, n, scalars[index]);
+                columns[index] = column;
+            }
+            return columns[index];
+        }
+
+        private double[] buffer() {
+            double[] column = free.poll();
+            return column != null ? column : new double[BLOCK];
+        }
+
+        private void release(int index) {
+            if (columns[index] != null) {
+                free.push(columns[index]);
+                columns[index] = null;
+            }
+        }
+    }
+
+    // Noyaux : boucles sans branchement, vectorisées par le JIT. Le résultat remplace l'opérande de gauche,
+    // sauf pour les noyaux unaires partiels qui l'écrivent à part afin de pouvoir relire l'opérande.
+    // Le minimum du domaine est vectorisé avec le calcul ; un NaN le rend indécidable, d'où la
+    // comparaison niée qui envoie ce cas vers le parcours exact.
+
+    static void add(double[] a, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] = a[i] + b[i];
+        }
+    }
+
+    static void subtract(double[] a, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] = a[i] - b[i];
+        }
+    }
+
+    static void multiply(double[] a, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] = a[i] * b[i];
+        }
+    }
+
+    static void divide(double[] a, double[] b, boolean[] mask, int n) {
+        double smallest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            smallest = Math.min(smallest, Math.abs(b[i]));
+            a[i] = a[i] / b[i];
+        }
+        if (!(smallest > 0)) {
+            for (int i = 0; i < n; i++) {
+                mask[i] |= b[i] == 0;
+            }
+        }
+    }
+
+    static void square(double[] a, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] = a[i] * a[i];
+        }
+    }
+
+    static void squareRoot(double[] a, double[] result, boolean[] mask, int n) {
+        double lowest = 0;
+        for (int i = 0; i < n; i++) {
+            lowest = Math.min(lowest, a[i]);
+            result[i] = Math.sqrt(a[i]);
+        }
+        if (!(lowest >= 0)) {
+            for (int i = 0; i < n; i++) {
+                mask[i] |= a[i] < 0;
+            }
+        }
+    }
+
+    static void reciprocal(double[] a, double[] result, boolean[] mask, int n) {
+        double smallest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            smallest = Math.min(smallest, Math.abs(a[i]));
+            result[i] = 1 / a[i];
+        }
+        if (!(smallest > 0)) {
+            for (int i = 0; i < n; i++) {
+                mask[i] |= a[i] == 0;
+            }
+        }
+    }
+}
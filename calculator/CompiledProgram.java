@@ -0,0 +1,24 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+/**
+ * Programme RPN compilé en bytecode par {@link ProgramCompiler}.
+ * Le résultat d'{@link #eval(double[])} est identique à celui de {@link Program#evaluate(double[])}.
+ */
+@FunctionalInterface
+public interface CompiledProgram {
+
+    /**
+     * Évalue la formule compilée.
+     *
+     * @param inputs Les valeurs d'entrée, la première étant au bas de la pile.
+     * @return La valeur au sommet de la pile à la fin du programme.
+     * @throws ArithmeticException      si une opération sort de son domaine.
+     * @throws IllegalArgumentException s'il y a moins d'entrées que nécessaire.
+     */
+    double eval(double[] inputs);
+}
@@ -0,0 +1,131 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Diagnostics des opérateurs : compteurs d'événements et journal asynchrone.
+ *
+ * Les opérateurs n'écrivent plus sur la console. Un événement (comme un manque d'opérandes)
+ * est compté par un {@link LongAdder}, sans contention entre threads, puis son message est
+ * déposé dans un tampon circulaire borné ({@value #CAPACITY} messages) sans jamais bloquer :
+ * si le tampon est plein, le message est perdu et compté par {@link #dropped()}. Un thread
+ * démon vide le tampon vers la destination choisie par {@link #setSink(Consumer)}, dans l'ordre
+ * des dépôts, et les messages restants sont écrits à l'arrêt de la JVM. Sans destination
+ * (par défaut), les messages ne sont pas conservés et seuls les compteurs sont tenus.
+ */
+public final class Diagnostics {
+
+    /**
+     * Nombre de messages en attente au-delà duquel les nouveaux messages sont perdus.
+     */
+    static final int CAPACITY = 1024;
+
+    private static final BlockingQueue<String> PENDING = new ArrayBlockingQueue<>(CAPACITY);
+    private static final LongAdder UNDERFLOWS = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final Object DELIVERY = new Object();  // ordonne les écritures vers la destination
+
+    private static volatile Consumer<String> sink = null;
+    private static Thread writer = null;
+
+    private Diagnostics() {}
+
+    /**
+     * Choisit la destination des messages, par exemple {@code System.err::println}.
+     * Les messages en attente sont d'abord écrits vers l'ancienne destination.
+     *
+     * @param destination La destination, appelée depuis un seul thread à la fois ;
+     *                    null pour désactiver le journal.
+     */
+    public static synchronized void setSink(Consumer<String> destination) {
+        flush();
+        if (destination != null && writer == null) {
+            writer = new Thread(Diagnostics::drainForever, "calculator-diagnostics");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(Diagnostics::flush));  // le démon ne finit pas seul
+        }
+        sink = destination;  // publie aussi writer aux threads qui lisent sink
+    }
+
+    /**
+     * Signale qu'un opérateur a manqué d'opérandes.
+     *
+     * @param operator  L'opérateur.
+     * @param stackSize La taille de la pile au moment de l'exécution.
+     */
+    static void underflow(Operator operator, int stackSize) {
+        UNDERFLOWS.increment();
+        if (sink != null) {
+            log(Operator.UNDERFLOW + " (" + operator.getClass().getSimpleName() + ", stack size " + stackSize + ")");
+        }
+    }
+
+    /**
+     * Dépose un message dans le journal, sans bloquer. Sans effet si le journal est désactivé.
+     *
+     * @param message Le message.
+     */
+    public static void log(String message) {
+        if (sink == null) {
+            return;
+        }
+        if (PENDING.offer(message)) {
+            LockSupport.unpark(writer);
+        } else {
+            DROPPED.increment();
+        }
+    }
+
+    /**
+     * Écrit immédiatement les messages en attente, depuis le thread appelant.
+     */
+    public static void flush() {
+        synchronized (DELIVERY) {
+            Consumer<String> destination = sink;
+            for (String message; (message = PENDING.poll()) != null; ) {
+                if (destination != null) {
+                    destination.accept(message);
+                }
+            }
+        }
+    }
+
+    private static void drainForever() {
+        while (true) {
+            flush();
+            LockSupport.park();
+        }
+    }
+
+    /**
+     * @return Le nombre d'exécutions d'opérateurs sans assez d'opérandes.
+     */
+    public static long underflows() {
+        return UNDERFLOWS.sum();
+    }
+
+    /**
+     * @return Le nombre de messages perdus parce que le tampon était plein.
+     */
+    public static long dropped() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * Remet les compteurs à zéro.
+     */
+    public static void reset() {
+        UNDERFLOWS.reset();
+        DROPPED.reset();
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Classe représentant une pile de valeurs primitives de type double.
+ * Contrairement à {@link Stack}, les valeurs sont stockées directement dans un
+ * tableau de double, sans objet Double intermédiaire.
+ */
+public class DoubleStack {
+    private double[] elements;
+    private int size = 0;
+    private int lowWaterMark = 0;  // plus petite taille atteinte depuis le dernier marquage
+    private static final int INITIAL_CAPACITY = 10;
+
+    /**
+     * Constructeur de la classe DoubleStack.
+     * Initialise la pile avec une capacité initiale définie.
+     */
+    public DoubleStack() {
+        elements = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Empile une valeur sur la pile.
+     *
+     * @param value La valeur à empiler.
+     */
+    public void push(double value) {
+        if (size == elements.length) {
+            resize(2 * elements.length);  // double la capacité si nécessaire
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * Désempile une valeur de la pile.
+     *
+     * @return La valeur désempilée.
+     * @throws NoSuchElementException si la pile est vide.
+     */
+    public double pop() {
+        if (size == 0) {
+            throw new NoSuchElementException("La pile est vide");
+        }
+        if (--size < lowWaterMark) {
+            lowWaterMark = size;
+        }
+        return elements[size];
+    }
+
+    /**
+     * Empile d'un bloc les valeurs restantes d'un tampon, la première allant le plus bas.
+     * La copie se fait en une seule opération, sans passer par {@link #push(double)}.
+     *
+     * @param values Les valeurs à empiler.
+     */
+    public void pushAll(DoubleBuffer values) {
+        int count = values.remaining();
+        int required = Math.addExact(size, count);
+        if (required > elements.length) {
+            resize(Math.max(required, 2 * elements.length));
+        }
+        values.get(elements, size, count);
+        size = required;
+    }
+
+    /**
+     * Copie des valeurs de la pile dans un tampon, autant que le tampon peut en recevoir.
+     *
+     * @param from   La position de la première valeur copiée, depuis la base.
+     * @param target Le tampon de destination.
+     * @return Le nombre de valeurs copiées.
+     * @throws IndexOutOfBoundsException si la position est hors de la pile.
+     */
+    public int copyTo(int from, DoubleBuffer target) {
+        Objects.checkIndex(from, size + 1);
+        int count = Math.min(size - from, target.remaining());
+        target.put(elements, from, count);
+        return count;
+    }
+
+    /**
+     * Retourne la valeur au sommet de la pile sans la retirer.
+     *
+     * @return La valeur au sommet de la pile.
+     * @throws NoSuchElementException si la pile est vide.
+     */
+    public double peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("La pile est vide");
+        }
+        return elements[size - 1];
+    }
+
+    /**
+     * Vide la pile sans libérer le tableau sous-jacent.
+     */
+    public void clear() {
+        size = 0;
+        lowWaterMark = 0;
+    }
+
+    /**
+     * Retourne la valeur située à une position donnée, comptée depuis la base de la pile.
+     *
+     * @param index La position, de 0 (base) à size() - 1 (sommet).
+     * @return La valeur à cette position.
+     * @throws IndexOutOfBoundsException si la position est hors de la pile.
+     */
+    public double get(int index) {
+        return elements[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Retourne la plus petite taille atteinte par la pile depuis le dernier appel à
+     * {@link #markLowWater()}. Les éléments situés sous cette position n'ont pas changé
+     * depuis ; seuls ceux au-dessus doivent être relus par un observateur.
+     *
+     * @return La position du plus bas élément potentiellement modifié.
+     */
+    public int lowWaterMark() {
+        return Math.min(lowWaterMark, size);
+    }
+
+    /**
+     * Marque l'état actuel comme vu : le niveau bas repart de la taille courante.
+     */
+    public void markLowWater() {
+        lowWaterMark = size;
+    }
+
+    /**
+     * Retourne une représentation sous forme de chaîne de caractères du contenu de la pile,
+     * du sommet vers la base.
+     *
+     * @return Une chaîne représentant les éléments de la pile.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = size - 1; i >= 0; i--) {
+            sb.append(elements[i]);
+            if (i > 0) sb.append(", ");
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * Retourne une représentation limitée aux {@code limit} éléments du sommet de la pile,
+     * suivie du nombre total d'éléments lorsque la pile est tronquée. Le coût ne dépend que
+     * de la limite, pas de la profondeur de la pile. Si la pile ne dépasse pas la limite,
+     * le résultat est identique à {@link #toString()}.
+     *
+     * @param limit Le nombre maximal d'éléments affichés.
+     * @return Une chaîne représentant le sommet de la pile.
+     * @throws IllegalArgumentException si la limite est négative.
+     */
+    public String toString(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        if (size <= limit) {
+            return toString();
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = size - 1; i >= size - limit; i--) {
+            sb.append(elements[i]).append(", ");
+        }
+        sb.append("...] (").append(size).append(" values)");
+        return sb.toString();
+    }
+
+    /**
+     * Retourne un tableau représentant l'état actuel de la pile, de la base vers le sommet.
+     *
+     * @return Un tableau contenant les éléments de la pile.
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Vérifie si la pile est vide.
+     *
+     * @return true si la pile est vide, sinon false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retourne la taille actuelle de la pile.
+     *
+     * @return Le nombre d'éléments dans la pile.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Redimensionne la capacité du tableau d'éléments.
+     *
+     * @param newCapacity La nouvelle capacité du tableau.
+     */
+    private void resize(int newCapacity) {
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+}
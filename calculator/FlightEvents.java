@@ -0,0 +1,114 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Événements JDK Flight Recorder de la calculatrice, regroupés dans la catégorie « Calculator ».
+ *
+ * Un événement n'est écrit que si l'enregistrement est en cours et que l'événement y est activé ;
+ * sinon, le test {@code shouldCommit()} est une simple lecture de champ. Sur le chemin le plus
+ * fréquent, l'exécution des opérateurs, l'événement n'est même pas construit : son type est
+ * consulté d'abord ({@link #operatorExecutionEnabled()}). Les réglages par défaut (seuils, traces de pile) sont choisis pour
+ * un enregistrement de production ; le fichier {@code calculator.jfc} fourni avec ces sources les
+ * active tous pour le profilage :
+ * <pre>
+ * java -XX:StartFlightRecording:settings=calculator/calculator.jfc,filename=calculator.jfr ...
+ * </pre>
+ */
+final class FlightEvents {
+
+    private static final EventType OPERATOR_EXECUTION = EventType.getEventType(OperatorExecution.class);
+
+    private FlightEvents() {}
+
+    /**
+     * Indique si l'événement {@link OperatorExecution} est activé dans un enregistrement en cours,
+     * sans construire d'événement.
+     *
+     * @return true si les exécutions d'opérateurs sont enregistrées.
+     */
+    static boolean operatorExecutionEnabled() {
+        return OPERATOR_EXECUTION.isEnabled();
+    }
+
+    /**
+     * Exécution d'un opérateur par {@link Operator#run(State)}.
+     * Désactivé par défaut : une exécution dure quelques nanosecondes et il y en a beaucoup.
+     */
+    @Name("calculator.OperatorExecution")
+    @Label("Operator Execution")
+    @Category("Calculator")
+    @Description("Execution of a calculator operator")
+    @Enabled(false)
+    @StackTrace(false)
+    @Threshold("0 ns")
+    static final class OperatorExecution extends Event {
+        /**
+         * Résultat d'une exécution réussie.
+         */
+        static final String OK = "ok";
+
+        /**
+         * Résultat d'une exécution qui a signalé une erreur de calcul.
+         */
+        static final String ERROR = "error";
+
+        /**
+         * Résultat d'une exécution sans assez d'opérandes dans la pile.
+         */
+        static final String UNDERFLOW = "underflow";
+
+        @Label("Operator")
+        String operator;
+
+        @Label("Stack Depth Before")
+        int stackBefore;
+
+        @Label("Stack Depth After")
+        int stackAfter;
+
+        @Label("Outcome")
+        @Description("ok, error or underflow")
+        String outcome;
+    }
+
+    /**
+     * Erreur signalée par {@link State#setError(String)}, avec la trace de pile de l'appelant.
+     */
+    @Name("calculator.StateError")
+    @Label("State Error")
+    @Category("Calculator")
+    @Description("Error raised on a calculator state")
+    static final class StateError extends Event {
+        @Label("Message")
+        String message;
+    }
+
+    /**
+     * Mise à jour de l'affichage de {@link JCalculator}. Seules les mises à jour assez longues
+     * pour retarder une image (au-delà de 10 ms par défaut) sont enregistrées.
+     */
+    @Name("calculator.GuiUpdate")
+    @Label("GUI Update")
+    @Category("Calculator")
+    @Description("Refresh of the calculator window after an operation")
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static final class GuiUpdate extends Event {
+        @Label("Stack Depth")
+        int stackDepth;
+    }
+}
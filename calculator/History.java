@@ -0,0 +1,98 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Historique illimité des états d'une calculatrice, pour annuler et rétablir des opérations.
+ * Chaque étape enregistre un {@link State.Snapshot} : la pile persistante étant partagée entre
+ * les versions, une étape coûte O(1) en temps et une quantité de mémoire constante, et annuler
+ * ou rétablir revient à échanger des pointeurs.
+ */
+public class History {
+    private final State state;
+    private final List<State.Snapshot> snapshots = new ArrayList<>();
+    private int current = 0;  // indice de l'instantané correspondant à l'état actuel
+
+    /**
+     * Constructeur de l'historique. La pile de l'état devient persistante et l'état
+     * actuel est la première étape de l'historique.
+     *
+     * @param state L'état dont on conserve l'historique.
+     */
+    public History(State state) {
+        this.state = state;
+        state.usePersistentStack();
+        snapshots.add(state.snapshot());
+    }
+
+    /**
+     * Enregistre l'état actuel comme nouvelle étape. Les étapes annulées ne peuvent plus être rétablies.
+     */
+    public void record() {
+        int last = snapshots.size() - 1;
+        if (current < last) {
+            snapshots.subList(current + 1, last + 1).clear();
+        }
+        snapshots.add(state.snapshot());
+        current++;
+    }
+
+    /**
+     * Revient à l'étape précédente.
+     *
+     * @return true si une étape a été annulée, false s'il n'y a rien à annuler.
+     */
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        state.restore(snapshots.get(--current));
+        return true;
+    }
+
+    /**
+     * Rétablit l'étape annulée la plus récente.
+     *
+     * @return true si une étape a été rétablie, false s'il n'y a rien à rétablir.
+     */
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        state.restore(snapshots.get(++current));
+        return true;
+    }
+
+    /**
+     * Indique s'il existe une étape à annuler.
+     *
+     * @return true si {@link #undo()} aurait un effet.
+     */
+    public boolean canUndo() {
+        return current > 0;
+    }
+
+    /**
+     * Indique s'il existe une étape annulée à rétablir.
+     *
+     * @return true si {@link #redo()} aurait un effet.
+     */
+    public boolean canRedo() {
+        return current < snapshots.size() - 1;
+    }
+
+    /**
+     * Retourne le nombre d'étapes conservées, état initial compris.
+     *
+     * @return Le nombre d'étapes.
+     */
+    public int size() {
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Analyseur d'expressions infixes, traduites en {@link Program} RPN par l'algorithme de la gare
+ * de triage (shunting-yard) de Dijkstra.
+ *
+ * Sont reconnus : les nombres ({@code \d+(\.\d+)?}), les opérateurs binaires {@code + - * /}
+ * avec leurs priorités usuelles et associativité à gauche, le moins unaire, les parenthèses et
+ * les fonctions {@code sqrt(x)}, {@code square(x)} et {@code inv(x)}. Les opérateurs produits sont
+ * ceux de la table des commandes, dans l'ordre où le REPL les exécuterait pour l'expression RPN
+ * équivalente : {@code (1 + 2) * 3} donne le même programme que {@code 1 2 + 3 *}.
+ * Le moins unaire d'un nombre donne un littéral négatif ; celui d'une expression est traduit par
+ * {@code -1 *}, négation exacte.
+ *
+ * L'analyse est linéaire et se fait en une passe sur les caractères, sans expression régulière
+ * ni découpage en chaînes : la pile des opérateurs est un tableau d'entiers et les instructions
+ * sont écrites directement dans les tableaux du programme.
+ */
+public final class InfixParser {
+
+    /**
+     * Préfixe signalant une expression infixe au REPL, au serveur et au {@link ProgramCache}.
+     */
+    public static final char PREFIX = '=';
+
+    // Éléments de la pile des opérateurs
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+    private static final int NEGATE = 4;
+    private static final int SQRT = 5;
+    private static final int SQUARE = 6;
+    private static final int INV = 7;
+    private static final int PARENTHESIS = 8;
+
+    private static final String[] COMMANDS = {"+", "-", "*", "/", "*", "sqrt", "square", "inv"};
+    private static final String[] FUNCTIONS = {"sqrt", "square", "inv"};
+
+    private final String text;
+    private final Operator[] table;  // opérateur de chaque élément, pris dans la table des commandes
+    private int position;
+    private int[] pending = new int[8];
+    private int depth;
+    private Operator[] operators;
+    private double[] literals;
+    private int count;
+
+    private InfixParser(String text, Map<String, Operator> commandMap) {
+        this.text = text;
+        this.table = new Operator[COMMANDS.length];
+        for (int i = 0; i < COMMANDS.length; i++) {
+            table[i] = commandMap.get(COMMANDS[i]);
+            if (table[i] == null) {
+                throw new IllegalArgumentException("Missing command: " + COMMANDS[i]);
+            }
+        }
+        int capacity = Math.max(4, text.length() / 2);
+        operators = new Operator[capacity];
+        literals = new double[capacity];
+    }
+
+    /**
+     * Analyse une expression infixe.
+     *
+     * @param text       Le texte de l'expression.
+     * @param commandMap La table des commandes, qui fournit les opérateurs.
+     * @return Le programme RPN équivalent.
+     * @throws IllegalArgumentException si l'expression est mal formée.
+     */
+    public static Program parse(String text, Map<String, Operator> commandMap) {
+        return new InfixParser(text, commandMap).parse();
+    }
+
+    private Program parse() {
+        boolean operand = true;  // true si un opérande est attendu
+        while (skipSpaces()) {
+            char c = text.charAt(position);
+            if (operand) {
+                if (isDigit(c)) {
+                    number(false);
+                    operand = false;
+                } else if (c == '-') {
+                    position++;
+                    skipSpaces();
+                    if (position < text.length() && isDigit(text.charAt(position))) {
+                        number(true);
+                        operand = false;
+                    } else {
+                        push(NEGATE);
+                    }
+                } else if (c == '+') {
+                    position++;  // plus unaire : sans effet
+                } else if (c == '(') {
+                    position++;
+                    push(PARENTHESIS);
+                } else if (isLetter(c)) {
+                    push(function());
+                    skipSpaces();
+                    if (position == text.length() || text.charAt(position) != '(') {
+                        throw error("Expected '(' after function");
+                    }
+                    position++;
+                    push(PARENTHESIS);
+                } else {
+                    throw error("Expected an operand");
+                }
+            } else {
+                int operator = switch (c) {
+                    case '+' -> ADD;
+                    case '-' -> SUBTRACT;
+                    case '*' -> MULTIPLY;
+                    case '/' -> DIVIDE;
+                    case ')' -> PARENTHESIS;
+                    default -> throw error("Expected an operator");
+                };
+                position++;
+                if (operator == PARENTHESIS) {
+                    closeParenthesis();
+                } else {
+                    while (depth > 0 && pending[depth - 1] != PARENTHESIS
+                            && precedence(pending[depth - 1]) >= precedence(operator)) {
+                        emit(pending[--depth]);
+                    }
+                    push(operator);
+                    operand = true;
+                }
+            }
+        }
+        if (operand) {
+            throw error(count == 0 && depth == 0 ? "Empty expression" : "Expected an operand");
+        }
+        while (depth > 0) {
+            int operator = pending[--depth];
+            if (operator == PARENTHESIS) {
+                throw error("Missing ')'");
+            }
+            emit(operator);
+        }
+        return new Program(Arrays.copyOf(operators, count), Arrays.copyOf(literals, count));
+    }
+
+    /**
+     * Ferme une parenthèse : les opérateurs en attente depuis la parenthèse ouvrante sont
+     * produits, puis la fonction qui la précède éventuellement.
+     */
+    private void closeParenthesis() {
+        while (depth > 0 && pending[depth - 1] != PARENTHESIS) {
+            emit(pending[--depth]);
+        }
+        if (depth == 0) {
+            throw error("Unexpected ')'");
+        }
+        depth--;
+        if (depth > 0 && pending[depth - 1] >= SQRT && pending[depth - 1] <= INV) {
+            emit(pending[--depth]);
+        }
+    }
+
+    /**
+     * Lit un nombre et le produit comme littéral, en calculant sa valeur comme le {@link Lexer}.
+     *
+     * @param negative true si le nombre est précédé d'un moins unaire.
+     */
+    private void number(boolean negative) {
+        int start = position;
+        long mantissa = 0;
+        boolean exact = true;
+        int fractionDigits = -1;
+        for (; position < text.length(); position++) {
+            char c = text.charAt(position);
+            if (c == '.' && fractionDigits < 0 && position + 1 < text.length() && isDigit(text.charAt(position + 1))) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (!isDigit(c)) {
+                break;
+            }
+            if (mantissa < Lexer.MAX_EXACT / 10) {
+                mantissa = mantissa * 10 + (c - '0');
+            } else {
+                exact = false;
+            }
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        fractionDigits = Math.max(fractionDigits, 0);
+        double value = exact && fractionDigits < Lexer.POWERS_OF_TEN.length
+                ? mantissa / Lexer.POWERS_OF_TEN[fractionDigits]
+                : Double.parseDouble(text.substring(start, position));
+        emit(null, negative ? -value : value);
+    }
+
+    /**
+     * Lit un nom de fonction.
+     *
+     * @return L'élément de la fonction.
+     */
+    private int function() {
+        int start = position;
+        while (position < text.length() && isLetter(text.charAt(position))) {
+            position++;
+        }
+        for (int i = 0; i < FUNCTIONS.length; i++) {
+            if (text.regionMatches(true, start, FUNCTIONS[i], 0, position - start)
+                    && FUNCTIONS[i].length() == position - start) {
+                return SQRT + i;
+            }
+        }
+        position = start;
+        throw error("Unknown function");
+    }
+
+    private static int precedence(int operator) {
+        return switch (operator) {
+            case ADD, SUBTRACT -> 1;
+            case MULTIPLY, DIVIDE -> 2;
+            default -> 3;  // moins unaire
+        };
+    }
+
+    private void push(int operator) {
+        if (depth == pending.length) {
+            pending = Arrays.copyOf(pending, 2 * depth);
+        }
+        pending[depth++] = operator;
+    }
+
+    /**
+     * Produit les instructions d'un opérateur en attente.
+     */
+    private void emit(int operator) {
+        if (operator == NEGATE) {
+            emit(null, -1);
+        }
+        emit(table[operator], 0);
+    }
+
+    private void emit(Operator operator, double literal) {
+        if (count == operators.length) {
+            operators = Arrays.copyOf(operators, 2 * count);
+            literals = Arrays.copyOf(literals, 2 * count);
+        }
+        operators[count] = operator;
+        literals[count] = literal;
+        count++;
+    }
+
+    /**
+     * Passe les espaces.
+     *
+     * @return true s'il reste des caractères à analyser.
+     */
+    private boolean skipSpaces() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position < text.length();
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + (position + 1) + ": " + text);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+}
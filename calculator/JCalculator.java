@@ -11,12 +11,14 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 
+import javax.swing.AbstractListModel;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 /**
  * @class JCalculator
@@ -28,39 +30,151 @@ import javax.swing.JTextField;
 public class JCalculator extends JFrame
 {
   /**
-   * @brief Tableau représentant une pile vide.
+   * @brief Texte affiché à la place d'une pile vide.
    */
-  private static final String[] empty = { "< empty stack >" };
+  private static final String empty = "< empty stack >";
+
+  /**
+   * @brief Valeur servant de modèle aux lignes de la pile : son écriture par Double.toString
+   * est de longueur maximale (signe, 17 chiffres significatifs et exposant à trois chiffres).
+   */
+  private static final Double widestValue = -Double.MIN_NORMAL;
 
   /**
    * @brief Zone de texte contenant la valeur introduite ou le résultat courant.
    */
   private final JTextField jNumber = new JTextField("0");
 
+  /**
+   * @brief État propre à cette fenêtre de calculatrice.
+   */
+  private final transient State state = new State();
+
+  /**
+   * @brief Historique des états, pour annuler et rétablir les opérations.
+   */
+  private final transient History history = new History(state);
+
+  /**
+   * @brief Modèle de la liste, lu directement dans la pile de l'état.
+   */
+  private final StackListModel stackModel = new StackListModel();
+
   /**
    * @brief Composant liste représentant le contenu de la pile.
    */
-  private final JList jStack = new JList(empty);
+  private final JList<Object> jStack = new JList<>(stackModel);
+
+  /**
+   * @brief Dernier texte affiché dans jNumber.
+   */
+  private String shownValue = "0";
+
+  /**
+   * @brief Indique qu'une mise à jour de l'affichage est déjà planifiée.
+   */
+  private boolean updatePending = false;
 
   /**
    * @brief Contraintes pour le placement des composants graphiques.
    */
   private final GridBagConstraints constraints = new GridBagConstraints();
 
+  /**
+   * @brief Modèle de liste qui expose la pile de l'état sans la copier.
+   *
+   * Les éléments sont lus à la demande dans la pile ; après une opération, seuls les
+   * intervalles ajoutés, retirés ou modifiés depuis la dernière mise à jour sont signalés
+   * à la liste, qui ne redessine donc que les lignes concernées.
+   */
+  private class StackListModel extends AbstractListModel<Object>
+  {
+    /**
+     * @brief Version de sérialisation, exigée par AbstractListModel.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @brief Nombre d'éléments de la pile connus de la liste.
+     */
+    private int shown = 0;
+
+    @Override
+    public int getSize()
+    {
+      return Math.max(shown, 1); // une ligne pour le texte de pile vide
+    }
+
+    @Override
+    public Object getElementAt(int index)
+    {
+      return shown == 0 ? empty : state.stackValueAt(index);
+    }
+
+    /**
+     * @brief Signale à la liste les éléments modifiés depuis la dernière synchronisation.
+     */
+    void synchronize()
+    {
+      int low = state.markStackSeen();
+      int oldShown = shown;
+      int oldRows = getSize();
+      shown = state.stackSize();
+      int newRows = getSize();
+      if (oldShown == 0 && shown == 0)
+        return;
+      if (oldShown == 0 || shown == 0)
+        low = 0; // la première ligne passe du texte de pile vide à une valeur, ou l'inverse
+
+      int common = Math.min(oldRows, newRows);
+      if (low < common)
+        fireContentsChanged(this, low, common - 1);
+      if (newRows > oldRows)
+        fireIntervalAdded(this, oldRows, newRows - 1);
+      else if (newRows < oldRows)
+        fireIntervalRemoved(this, newRows, oldRows - 1);
+    }
+  }
+
   /**
    * @brief Met à jour l'interface graphique après une opération.
    *
-   * Cette méthode met à jour la valeur dans la zone de texte jNumber et le contenu de la pile affichée dans jStack.
+   * Cette méthode met à jour la valeur dans la zone de texte jNumber, seulement si elle a changé,
+   * et signale à jStack les seuls éléments de la pile ajoutés ou retirés.
+   * Sa durée est signalée au Flight Recorder au-delà du seuil de l'événement GuiUpdate.
    */
   private void update()
   {
-    jNumber.setText(State.getState().getValueString());
-
-    Object[] stackArray = State.getState().stackToArray(); // Récupère les éléments de la pile
-    jStack.setListData(stackArray); // Met à jour la JList avec les éléments actuels de la pile
+    FlightEvents.GuiUpdate event = new FlightEvents.GuiUpdate();
+    event.begin();
+    updatePending = false;
+    String value = state.getValueString();
+    if (!value.equals(shownValue))
+    {
+      shownValue = value;
+      jNumber.setText(value);
+    }
+    stackModel.synchronize();
+    event.end();
+    if (event.shouldCommit())
+    {
+      event.stackDepth = state.stackSize();
+      event.commit();
+    }
+  }
 
-    if(State.getState().isStackEmpty())
-      jStack.setListData(empty);
+  /**
+   * @brief Planifie une mise à jour de l'affichage.
+   *
+   * Plusieurs opérations traitées avant que la mise à jour ne s'exécute n'en déclenchent qu'une.
+   */
+  private void requestUpdate()
+  {
+    if (!updatePending)
+    {
+      updatePending = true;
+      SwingUtilities.invokeLater(this::update);
+    }
   }
 
   /**
@@ -76,6 +190,23 @@ public class JCalculator extends JFrame
    */
   private void addOperatorButton(String name, int x, int y, Color color,
                                  final Operator operator)
+  {
+    addButton(name, x, y, color, () -> {
+      operator.run(state);
+      history.record();
+    });
+  }
+
+  /**
+   * @brief Ajoute un bouton à l'interface et associe une action.
+   *
+   * @param name Nom du bouton.
+   * @param x Position horizontale dans la grille.
+   * @param y Position verticale dans la grille.
+   * @param color Couleur du texte du bouton.
+   * @param action Action exécutée lors d'un clic, avant la mise à jour de l'interface.
+   */
+  private void addButton(String name, int x, int y, Color color, Runnable action)
   {
     JButton b = new JButton(name);
     b.setForeground(color);
@@ -83,8 +214,8 @@ public class JCalculator extends JFrame
     constraints.gridy = y;
     getContentPane().add(b, constraints);
     b.addActionListener(e -> {
-      operator.execute();
-      update();
+      action.run();
+      requestUpdate();
     });
   }
 
@@ -156,6 +287,10 @@ public class JCalculator extends JFrame
     // Entree: met la valeur courante sur le sommet de la pile
     addOperatorButton("Ent", 4, 5, Color.RED, new Enter());
 
+    // Annulation et retablissement des operations
+    addButton("Undo", 3, 6, Color.BLACK, history::undo);
+    addButton("Redo", 4, 6, Color.BLACK, history::redo);
+
     // Affichage de la pile
     JLabel jLabel = new JLabel("Stack");
     jLabel.setFont(new Font("Dialog", 0, 12));
@@ -166,6 +301,8 @@ public class JCalculator extends JFrame
 
     jStack.setFont(new Font("Dialog", 0, 12));
     jStack.setVisibleRowCount(8);
+    // Taille de ligne fixe, assez large pour toute valeur : pas de mesure de toutes les lignes
+    jStack.setPrototypeCellValue(widestValue);
     JScrollPane scrollPane = new JScrollPane(jStack);
     constraints.gridx = 5;
     constraints.gridy = 1;
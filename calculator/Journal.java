@@ -0,0 +1,378 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Journal d'écriture anticipée d'un {@link State}, pour reconstruire l'état après un arrêt brutal.
+ *
+ * Chaque opération est enregistrée avant d'être appliquée, sous forme binaire compacte
+ * (un octet par opérateur, neuf octets pour une valeur ; voir {@link Opcodes}), à la suite
+ * d'un fichier projeté en mémoire. Les écritures dans la projection survivent à l'arrêt du
+ * processus ; elles sont forcées sur disque par groupes de {@code groupCommit} opérations
+ * (validation groupée) ou par {@link #commit()}.
+ *
+ * Toutes les {@code snapshotInterval} opérations, l'état complet est écrit dans un instantané
+ * (un {@link Checkpoint}),
+ * puis le journal est compacté : il repart vide. À l'ouverture, l'état est relu depuis le dernier
+ * instantané et seule la fin du journal est rejouée, ce qui borne le temps de reprise quelle que
+ * soit la durée de la session. Chaque enregistrement porte implicitement un numéro de séquence,
+ * de sorte qu'un arrêt entre l'écriture de l'instantané et le compactage ne rejoue rien deux fois.
+ *
+ * Un enregistrement est écrit après le marqueur de fin qui le suit, et son premier octet en
+ * dernier : interrompue à tout moment, l'écriture laisse le marqueur de fin à la place de
+ * l'enregistrement. Le compactage efface les anciens enregistrements avant de réécrire l'en-tête,
+ * de sorte qu'aucun octet au-delà du marqueur de fin ne peut être pris pour un enregistrement.
+ *
+ * Une instance n'est pas thread-safe, comme l'état qu'elle journalise.
+ */
+public final class Journal implements AutoCloseable {
+
+    /**
+     * Nom du fichier journal dans le répertoire.
+     */
+    static final String LOG_FILE = "journal.log";
+
+    /**
+     * Nom du fichier de l'instantané dans le répertoire.
+     */
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    /**
+     * Nombre d'opérations par validation groupée, par défaut.
+     */
+    static final int DEFAULT_GROUP_COMMIT = 64;
+
+    /**
+     * Nombre d'opérations entre deux instantanés, par défaut.
+     */
+    static final long DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    private static final int LOG_MAGIC = 0x52504E4A;       // "RPNJ"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;                  // magique, version, séquence de base
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final int MAX_STEP = 1 + Double.BYTES + 1;  // VALUE et sa valeur, puis PUSH
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final Path directory;
+    private final State state;
+    private final int groupCommit;
+    private final long snapshotInterval;
+    private final FileChannel channel;
+    private MappedByteBuffer log;
+    private long sequence;          // numéro du dernier enregistrement appliqué
+    private long snapshotSequence;  // numéro du dernier enregistrement couvert par l'instantané
+    private int pending;            // enregistrements pas encore forcés sur disque
+    private long dirty;             // fin de la zone du fichier qui peut contenir d'anciens enregistrements
+    private long replayed;
+
+    /**
+     * Ouvre le journal d'un répertoire avec les paramètres par défaut et y restaure l'état.
+     *
+     * @param directory Le répertoire du journal, créé si nécessaire.
+     * @param state     Un état neuf, qui reçoit l'état restauré.
+     * @throws IOException en cas d'erreur d'entrée-sortie ou de journal incohérent.
+     */
+    public Journal(Path directory, State state) throws IOException {
+        this(directory, state, DEFAULT_GROUP_COMMIT, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Ouvre le journal d'un répertoire et y restaure l'état : dernier instantané, puis fin du journal.
+     *
+     * @param directory        Le répertoire du journal, créé si nécessaire.
+     * @param state            Un état neuf, qui reçoit l'état restauré.
+     * @param groupCommit      Nombre d'opérations entre deux écritures forcées sur disque.
+     * @param snapshotInterval Nombre d'opérations entre deux instantanés.
+     * @throws IOException en cas d'erreur d'entrée-sortie ou de journal incohérent.
+     */
+    public Journal(Path directory, State state, int groupCommit, long snapshotInterval) throws IOException {
+        if (groupCommit <= 0 || snapshotInterval <= 0) {
+            throw new IllegalArgumentException("groupCommit and snapshotInterval must be positive");
+        }
+        this.directory = directory;
+        this.state = state;
+        this.groupCommit = groupCommit;
+        this.snapshotInterval = snapshotInterval;
+        Files.createDirectories(directory);
+
+        readSnapshot();
+        channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        dirty = size;  // contenu inconnu : effacé au premier compactage
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+        if (size < HEADER || log.getInt(0) == 0) {
+            reset();  // journal neuf, ou créé sans que l'en-tête ait pu être écrit
+        } else if (log.getInt(0) != LOG_MAGIC || log.getInt(4) != VERSION) {
+            throw new IOException("Not a calculator journal: " + directory.resolve(LOG_FILE));
+        } else {
+            replay();
+        }
+        if (sequence - snapshotSequence >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Lit le dernier instantané, s'il existe.
+     */
+    private void readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        sequence = Checkpoint.load(file, state);
+        snapshotSequence = sequence;
+    }
+
+    /**
+     * Rejoue les enregistrements du journal postérieurs à l'instantané. La lecture s'arrête au
+     * marqueur de fin, qui précède toujours un enregistrement dont l'écriture a été interrompue,
+     * ou à un octet qui n'est pas un code d'enregistrement.
+     */
+    private void replay() throws IOException {
+        long record = log.getLong(8);
+        if (record > sequence) {
+            throw new IOException("Journal starts after the last snapshot: " + record + " > " + sequence);
+        }
+        int position = HEADER;
+        while (position < log.capacity()) {
+            int opcode = log.get(position) & 0xFF;
+            int length = opcode == Opcodes.VALUE ? 1 + Double.BYTES : 1;
+            if (opcode == Opcodes.END || position + length > log.capacity()
+                    || opcode != Opcodes.VALUE && opcode != Opcodes.PUSH && !Opcodes.isOperator(opcode)) {
+                break;
+            }
+            if (++record > sequence) {
+                apply(opcode, opcode == Opcodes.VALUE ? log.getDouble(position + 1) : 0);
+                sequence = record;
+                replayed++;
+            }
+            position += length;
+        }
+        log.position(position);
+        terminate();
+    }
+
+    /**
+     * Applique un enregistrement à l'état.
+     */
+    private void apply(int opcode, double value) {
+        if (opcode == Opcodes.VALUE) {
+            state.setValue(value);
+        } else if (opcode == Opcodes.PUSH) {
+            state.pushToStack(state.value());
+        } else {
+            Opcodes.operator(opcode).run(state);
+        }
+    }
+
+    /**
+     * Exécute un opérateur sur l'état, après l'avoir journalisé.
+     *
+     * @param operator L'opérateur à exécuter.
+     * @throws UncheckedIOException si le journal ne peut pas être agrandi ou l'instantané écrit.
+     */
+    public void execute(Operator operator) {
+        ensureRemaining(1);
+        append(Opcodes.of(operator));
+        operator.run(state);
+        maintain();
+    }
+
+    /**
+     * Exécute un programme sur l'état comme {@link Program#execute(State)}, en journalisant
+     * chaque instruction avant de l'appliquer.
+     *
+     * @param program Le programme à exécuter.
+     * @throws UncheckedIOException si le journal ne peut pas être agrandi ou l'instantané écrit.
+     */
+    public void execute(Program program) {
+        for (int i = 0; i < program.size(); i++) {
+            ensureRemaining(MAX_STEP);  // un éventuel instantané ne coupe pas l'instruction en deux
+            Operator operator = program.operator(i);
+            if (operator == null) {
+                append(program.literal(i));
+            } else {
+                append(Opcodes.of(operator));
+            }
+            append(Opcodes.PUSH);
+            program.step(state, i);
+            maintain();
+        }
+    }
+
+    /**
+     * Force sur disque les enregistrements écrits depuis la dernière validation.
+     */
+    public void commit() {
+        if (pending > 0) {
+            log.force();
+            pending = 0;
+        }
+    }
+
+    /**
+     * Écrit un instantané de l'état actuel puis compacte le journal, qui repart vide.
+     * À appeler aussi après toute modification de l'état qui ne passe pas par le journal
+     * (par exemple une annulation).
+     *
+     * @throws UncheckedIOException en cas d'erreur d'écriture.
+     */
+    public void snapshot() {
+        try {
+            commit();
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            Checkpoint.save(state, temporary, sequence);
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotSequence = sequence;
+            reset();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Vide le journal : les anciens enregistrements sont effacés et forcés sur disque, puis
+     * l'en-tête reprend à la séquence courante. Un arrêt entre les deux laisse un journal vide
+     * sous l'ancien en-tête, dont l'instantané couvre déjà tous les enregistrements.
+     */
+    private void reset() {
+        int end = (int) Math.min(Math.max(dirty, log.position()), log.capacity());
+        for (int position = HEADER; position < end; position += ZEROS.length) {
+            log.put(position, ZEROS, 0, Math.min(ZEROS.length, end - position));
+        }
+        if (end > HEADER) {
+            log.force();
+        }
+        dirty = 0;
+        log.putInt(0, LOG_MAGIC);
+        log.putInt(4, VERSION);
+        log.putLong(8, sequence);
+        log.position(HEADER);
+        terminate();
+        log.force();
+        pending = 0;
+    }
+
+    /**
+     * Journalise un opérateur ou la commande {@link Opcodes#PUSH}.
+     * La place doit avoir été réservée par {@link #ensureRemaining(int)}.
+     */
+    private void append(int opcode) {
+        int position = log.position();
+        log.put(position + 1, (byte) Opcodes.END);
+        VarHandle.storeStoreFence();
+        log.put(position, (byte) opcode);  // l'enregistrement devient visible
+        log.position(position + 1);
+        appended();
+    }
+
+    /**
+     * Journalise la définition de la valeur courante.
+     * La place doit avoir été réservée par {@link #ensureRemaining(int)}.
+     */
+    private void append(double value) {
+        int position = log.position();
+        log.put(position + 1 + Double.BYTES, (byte) Opcodes.END);
+        log.putDouble(position + 1, value);
+        VarHandle.storeStoreFence();
+        log.put(position, (byte) Opcodes.VALUE);  // l'enregistrement devient visible
+        log.position(position + 1 + Double.BYTES);
+        appended();
+    }
+
+    private void appended() {
+        sequence++;
+        pending++;
+    }
+
+    /**
+     * Écrit le marqueur de fin après le dernier enregistrement, sans avancer la position :
+     * les octets d'un journal précédent, plus loin dans le fichier, ne seront pas rejoués.
+     */
+    private void terminate() {
+        if (log.hasRemaining()) {
+            log.put(log.position(), (byte) Opcodes.END);
+        }
+    }
+
+    /**
+     * Valide le groupe d'enregistrements ou écrit un instantané lorsque c'est le moment.
+     */
+    private void maintain() {
+        if (sequence - snapshotSequence >= snapshotInterval) {
+            snapshot();
+        } else if (pending >= groupCommit) {
+            commit();
+        }
+    }
+
+    /**
+     * Agrandit la projection si elle ne peut pas recevoir les enregistrements d'une instruction
+     * et leur marqueur de fin. Au-delà de la taille maximale, le journal est compacté par un
+     * instantané : il doit donc être appelé avant le premier enregistrement de l'instruction,
+     * jamais entre deux, pour que l'instantané ne compte pas un enregistrement non appliqué.
+     */
+    private void ensureRemaining(int length) {
+        if (log.remaining() > length) {
+            return;
+        }
+        if (log.capacity() > Integer.MAX_VALUE / 2) {
+            snapshot();  // le compactage libère tout le journal
+            return;
+        }
+        try {
+            int position = log.position();
+            log.force();
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2L * log.capacity());
+            log.position(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retourne le nombre d'opérations rejouées depuis le journal à l'ouverture.
+     *
+     * @return Le nombre d'opérations rejouées.
+     */
+    public long replayed() {
+        return replayed;
+    }
+
+    /**
+     * Retourne le numéro de séquence de la dernière opération journalisée.
+     *
+     * @return Le nombre total d'opérations journalisées depuis la création du journal.
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Valide les derniers enregistrements et ferme le journal.
+     *
+     * @throws IOException en cas d'erreur de fermeture.
+     */
+    @Override
+    public void close() throws IOException {
+        commit();
+        channel.close();
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Analyseur lexical des jetons RPN, écrit à la main.
+ *
+ * Le lexer lit des octets depuis une suite de tampons ({@link Source}) et reconnaît les nombres
+ * ({@code -?\d+(\.\d+)?}) et les mots-clés (noms d'opérateurs, commandes) sans créer de
+ * {@link String} ni d'expression régulière : les octets du jeton courant sont copiés dans un
+ * tableau réutilisé, la valeur d'un nombre est calculée directement à partir de ses chiffres et
+ * les mots-clés sont comparés octet par octet, sans tenir compte de la casse.
+ * Un jeton peut être à cheval sur deux tampons.
+ */
+final class Lexer {
+
+    /**
+     * Fin de l'entrée.
+     */
+    static final int EOF = -1;
+
+    /**
+     * Nombre littéral ; sa valeur est donnée par {@link #number()}.
+     */
+    static final int NUMBER = 0;
+
+    /**
+     * Mot-clé ; son indice dans la table est donné par {@link #keyword()}.
+     */
+    static final int WORD = 1;
+
+    /**
+     * Jeton non reconnu ; son texte est donné par {@link #text()}.
+     */
+    static final int UNKNOWN = 2;
+
+    /**
+     * Fin de ligne, signalée seulement si {@link #reportLineBreaks(boolean)} est activé.
+     */
+    static final int END_OF_LINE = 3;
+
+    /**
+     * Plus grand entier représentable exactement par un double (2^53).
+     */
+    static final long MAX_EXACT = 1L << 53;
+
+    /**
+     * Puissances de dix représentables exactement par un double.
+     */
+    static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Fournisseur des tampons d'octets successifs de l'entrée.
+     */
+    @FunctionalInterface
+    interface Source {
+        /**
+         * Retourne le tampon suivant, prêt à être lu.
+         *
+         * @return Le tampon suivant, ou null à la fin de l'entrée.
+         * @throws IOException en cas d'erreur de lecture.
+         */
+        ByteBuffer next() throws IOException;
+    }
+
+    private final Source source;
+    private final byte[][] keywords;
+    private ByteBuffer buffer;
+    private boolean ended;
+    private boolean lineBreaks;
+    private byte[] token = new byte[64];
+    private int length;
+    private double number;
+    private int keyword;
+
+    /**
+     * Constructeur du lexer.
+     *
+     * @param source   La source des octets à analyser.
+     * @param keywords Les mots-clés reconnus, en minuscules.
+     */
+    Lexer(Source source, String[] keywords) {
+        this.source = source;
+        this.keywords = new byte[keywords.length][];
+        for (int i = 0; i < keywords.length; i++) {
+            this.keywords[i] = keywords[i].getBytes(StandardCharsets.UTF_8);
+        }
+        this.buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Crée un lexer lisant un flux au travers d'un unique tampon réutilisé.
+     *
+     * @param in       Le flux à analyser.
+     * @param keywords Les mots-clés reconnus, en minuscules.
+     * @return Le lexer.
+     */
+    static Lexer of(InputStream in, String[] keywords) {
+        byte[] bytes = new byte[1 << 16];
+        ByteBuffer reusable = ByteBuffer.wrap(bytes);
+        return new Lexer(() -> {
+            int read = in.read(bytes);
+            if (read < 0) {
+                return null;
+            }
+            reusable.clear().limit(read);
+            return reusable;
+        }, keywords);
+    }
+
+    /**
+     * Crée un lexer analysant un texte déjà en mémoire.
+     *
+     * @param text     Le texte à analyser.
+     * @param keywords Les mots-clés reconnus, en minuscules.
+     * @return Le lexer.
+     */
+    static Lexer of(String text, String[] keywords) {
+        ByteBuffer[] single = {ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))};
+        return new Lexer(() -> {
+            ByteBuffer next = single[0];
+            single[0] = null;
+            return next;
+        }, keywords);
+    }
+
+    /**
+     * Active ou désactive le signalement des fins de ligne par {@link #END_OF_LINE}.
+     *
+     * @param enabled true pour signaler les fins de ligne, false pour les traiter comme des espaces.
+     * @return Ce lexer.
+     */
+    Lexer reportLineBreaks(boolean enabled) {
+        lineBreaks = enabled;
+        return this;
+    }
+
+    /**
+     * Avance jusqu'au jeton suivant.
+     *
+     * @return Le type du jeton : {@link #NUMBER}, {@link #WORD}, {@link #UNKNOWN},
+     *         {@link #END_OF_LINE} ou {@link #EOF}.
+     * @throws IOException en cas d'erreur de lecture.
+     */
+    int next() throws IOException {
+        int b;
+        do {
+            b = read();
+            if (b == '\n' && lineBreaks) {
+                return END_OF_LINE;
+            }
+        } while (isSeparator(b));
+        if (b < 0) {
+            return EOF;
+        }
+
+        length = 0;
+        do {
+            if (length == token.length) {
+                token = Arrays.copyOf(token, 2 * length);
+            }
+            token[length++] = (byte) b;
+            b = peek();
+            if (isSeparator(b) || b < 0) {
+                break;
+            }
+            read();
+        } while (true);
+
+        if (parseNumber()) {
+            return NUMBER;
+        }
+        keyword = findKeyword();
+        return keyword >= 0 ? WORD : UNKNOWN;
+    }
+
+    /**
+     * Retourne la valeur du dernier nombre lu.
+     *
+     * @return La valeur du nombre.
+     */
+    double number() {
+        return number;
+    }
+
+    /**
+     * Retourne l'indice du dernier mot-clé lu.
+     *
+     * @return L'indice du mot-clé dans la table fournie au constructeur.
+     */
+    int keyword() {
+        return keyword;
+    }
+
+    /**
+     * Retourne le texte du dernier jeton lu. Alloue une chaîne : à réserver aux messages d'erreur.
+     *
+     * @return Le texte du jeton.
+     */
+    String text() {
+        return new String(token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reconnaît un nombre {@code -?\d+(\.\d+)?} dans le jeton courant et calcule sa valeur.
+     * La valeur est exacte (correctement arrondie) lorsque la mantisse tient sur 53 bits et
+     * que la partie décimale compte au plus 22 chiffres ; sinon, le calcul est délégué à
+     * {@link Double#parseDouble(String)}.
+     *
+     * @return true si le jeton est un nombre.
+     */
+    private boolean parseNumber() {
+        int i = 0;
+        boolean negative = token[0] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        boolean exact = true;
+        int integerDigits = 0;
+        for (; i < length && isDigit(token[i]); i++, integerDigits++) {
+            if (mantissa < MAX_EXACT / 10) {
+                mantissa = mantissa * 10 + (token[i] - '0');
+            } else {
+                exact = false;
+            }
+        }
+        if (integerDigits == 0) {
+            return false;
+        }
+        int fractionDigits = 0;
+        if (i < length) {
+            if (token[i] != '.') {
+                return false;
+            }
+            for (i++; i < length && isDigit(token[i]); i++, fractionDigits++) {
+                if (mantissa < MAX_EXACT / 10) {
+                    mantissa = mantissa * 10 + (token[i] - '0');
+                } else {
+                    exact = false;
+                }
+            }
+            if (fractionDigits == 0 || i < length) {
+                return false;
+            }
+        }
+        if (exact && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            number = negative ? -value : value;
+        } else {
+            number = Double.parseDouble(new String(token, 0, length, StandardCharsets.ISO_8859_1));
+        }
+        return true;
+    }
+
+    /**
+     * Recherche le jeton courant parmi les mots-clés, sans tenir compte de la casse.
+     *
+     * @return L'indice du mot-clé, ou -1 s'il n'est pas reconnu.
+     */
+    private int findKeyword() {
+        for (int k = 0; k < keywords.length; k++) {
+            byte[] candidate = keywords[k];
+            if (candidate.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && toLower(token[i]) == candidate[i]) {
+                i++;
+            }
+            if (i == length) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lit l'octet suivant, en passant au tampon suivant si nécessaire.
+     *
+     * @return L'octet lu (0 à 255), ou -1 à la fin de l'entrée.
+     */
+    private int read() throws IOException {
+        int b = peek();
+        if (b >= 0) {
+            buffer.position(buffer.position() + 1);
+        }
+        return b;
+    }
+
+    /**
+     * Retourne l'octet suivant sans le consommer.
+     *
+     * @return L'octet suivant (0 à 255), ou -1 à la fin de l'entrée.
+     */
+    private int peek() throws IOException {
+        while (!buffer.hasRemaining()) {
+            if (ended) {
+                return -1;
+            }
+            ByteBuffer next = source.next();
+            if (next == null) {
+                ended = true;
+                return -1;
+            }
+            buffer = next;
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    private static boolean isSeparator(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static byte toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Générateur de charge pour {@link CalculatorServer}.
+ * Ouvre plusieurs connexions simultanées (une par thread virtuel), envoie des
+ * requêtes en mode requête/réponse et mesure le débit ainsi que la latence
+ * (médiane et percentiles élevés) sur l'hôte local.
+ */
+public class LoadGenerator {
+
+    /**
+     * Requête envoyée par chaque client ; sa réponse attendue est {@code 5}.
+     * Le {@code clear} initial garde la pile du serveur de taille constante.
+     */
+    private static final byte[] REQUEST = "clear 2 3 + 4 * 20 / 5 *\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Exécute un client : envoie {@code requests} requêtes et enregistre la latence de chacune.
+     *
+     * @param port     Le port du serveur.
+     * @param requests Le nombre de requêtes à envoyer.
+     * @return Les latences mesurées, en nanosecondes.
+     * @throws IOException en cas d'erreur réseau.
+     */
+    private static long[] runClient(int port, int requests) throws IOException {
+        long[] latencies = new long[requests];
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                out.write(REQUEST);
+                out.flush();
+                if (in.readLine() == null) {
+                    throw new IOException("Connection closed by server");
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * Retourne le percentile demandé d'un tableau trié.
+     *
+     * @param sorted     Les valeurs triées.
+     * @param percentile Le percentile (entre 0 et 100).
+     * @return La valeur correspondante.
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Lance la charge et affiche le débit et les latences.
+     *
+     * @param args Port, nombre de clients, nombre de requêtes par client (optionnels).
+     * @throws Exception si un client échoue.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : CalculatorServer.DEFAULT_PORT;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                results.add(executor.submit(() -> runClient(port, requests)));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = new long[clients * requests];
+        int offset = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%d clients x %d requests in %.2f s%n", clients, requests, elapsed / 1e9);
+        System.out.printf("Throughput: %.0f requests/s%n", all.length / (elapsed / 1e9));
+        System.out.printf("Latency (us): p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                percentile(all, 50) / 1e3, percentile(all, 99) / 1e3,
+                percentile(all, 99.9) / 1e3, all[all.length - 1] / 1e3);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Source d'octets du {@link Lexer} projetant un fichier en mémoire ({@link FileChannel#map}).
+ * Le fichier est projeté par tranches d'au plus {@value #DEFAULT_CHUNK_SIZE} octets, ce qui
+ * permet de lire des fichiers de plus de 2 Go ; le lexer analyse directement les pages projetées,
+ * sans copie intermédiaire. Un jeton à cheval sur deux tranches est reconstitué par le lexer.
+ */
+final class MappedSource implements Lexer.Source, AutoCloseable {
+
+    /**
+     * Taille par défaut d'une tranche projetée (1 Go).
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int chunkSize;
+    private long position;
+
+    /**
+     * Ouvre un fichier en lecture.
+     *
+     * @param file      Le fichier à lire.
+     * @param chunkSize La taille maximale d'une tranche projetée.
+     * @throws IOException si le fichier ne peut pas être ouvert.
+     */
+    MappedSource(Path file, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Ouvre un fichier en lecture avec la taille de tranche par défaut.
+     *
+     * @param file Le fichier à lire.
+     * @throws IOException si le fichier ne peut pas être ouvert.
+     */
+    MappedSource(Path file) throws IOException {
+        this(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Projette la tranche suivante du fichier.
+     *
+     * @return La tranche suivante, ou null à la fin du fichier.
+     * @throws IOException si la projection échoue.
+     */
+    @Override
+    public ByteBuffer next() throws IOException {
+        if (position >= size) {
+            return null;
+        }
+        long length = Math.min(chunkSize, size - position);
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += length;
+        return chunk;
+    }
+
+    /**
+     * Ferme le fichier. Les tranches déjà projetées restent lisibles jusqu'à leur libération.
+     *
+     * @throws IOException si la fermeture échoue.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,341 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Mesures d'exécution des opérateurs : nombre d'appels, nombre d'erreurs de calcul
+ * ({@link ArithmeticException} d'une division par zéro, d'une racine d'un négatif...),
+ * histogramme des durées d'exécution et profondeur maximale de la pile.
+ *
+ * L'instrumentation est activée par la propriété système {@code -Dcalculator.metrics=true}
+ * (ou par l'option {@code --metrics} de {@link Calculator}). Sa valeur est lue une seule fois
+ * dans une constante {@link #ENABLED} : lorsqu'elle est désactivée, le JIT élimine entièrement
+ * les branches instrumentées de {@link Operator#run(State)} et de l'interpréteur.
+ *
+ * Les compteurs sont des {@link LongAdder}, sans contention entre threads. Les durées sont
+ * rangées dans des intervalles de puissances de deux en nanosecondes. Les mesures sont publiées
+ * par un MXBean JMX ({@code calculator:type=Metrics}) et au format texte de Prometheus
+ * ({@link #scrape()}), servi en HTTP sur {@code /metrics} par {@link #serve(int)}.
+ * Les opérateurs exécutés par {@link OpcodeProgram#execute(State)} sont comptés, sans mesure de durée.
+ */
+public final class Metrics {
+
+    /**
+     * true si l'instrumentation est activée.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("calculator.metrics");
+
+    /**
+     * Nom de l'objet JMX publié par {@link #register()}.
+     */
+    static final String OBJECT_NAME = "calculator:type=Metrics";
+
+    /**
+     * Nombre d'intervalles de l'histogramme des durées ; le dernier est illimité.
+     * L'intervalle i contient les durées d'au plus 2^i nanosecondes.
+     */
+    static final int BUCKETS = 24;
+
+    private static final Queue<Counters> ALL = new ConcurrentLinkedQueue<>();
+
+    private static final ClassValue<Counters> COUNTERS = new ClassValue<>() {
+        @Override
+        protected Counters computeValue(Class<?> type) {
+            Counters counters = new Counters(name(type));
+            ALL.add(counters);
+            return counters;
+        }
+    };
+
+    private static final LongAccumulator MAX_STACK_DEPTH = new LongAccumulator(Math::max, 0);
+
+    private Metrics() {}
+
+    /**
+     * Mesures d'une classe d'opérateurs.
+     */
+    private static final class Counters {
+        final String name;
+        final LongAdder invocations = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Counters(String name) {
+            this.name = name;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Enregistre une exécution d'opérateur.
+     *
+     * @param operator   L'opérateur exécuté.
+     * @param nanos      La durée de l'exécution.
+     * @param stackDepth La taille de la pile après l'exécution.
+     */
+    static void executed(Operator operator, long nanos, int stackDepth) {
+        Counters counters = COUNTERS.get(operator.getClass());
+        counters.invocations.increment();
+        counters.nanos.add(nanos);
+        counters.buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(nanos - 1, 0)))].increment();
+        MAX_STACK_DEPTH.accumulate(stackDepth);
+    }
+
+    /**
+     * Enregistre une erreur de calcul d'un opérateur.
+     *
+     * @param operator L'opérateur en erreur.
+     */
+    static void failed(Operator operator) {
+        COUNTERS.get(operator.getClass()).errors.increment();
+    }
+
+    /**
+     * Enregistre l'exécution d'un code d'opération par l'interpréteur.
+     *
+     * @param opcode Le code exécuté.
+     * @param failed true si le calcul a produit une erreur.
+     */
+    static void interpreted(int opcode, boolean failed) {
+        Counters counters = COUNTERS.get(Opcodes.operator(opcode).getClass());
+        counters.invocations.increment();
+        if (failed) {
+            counters.errors.increment();
+        }
+    }
+
+    /**
+     * Enregistre la taille de la pile, pour la profondeur maximale.
+     *
+     * @param stackDepth La taille de la pile.
+     */
+    static void stackDepth(int stackDepth) {
+        MAX_STACK_DEPTH.accumulate(stackDepth);
+    }
+
+    /**
+     * Nom d'une classe d'opérateurs dans les mesures : {@code SquareRoot} devient {@code square_root}.
+     */
+    private static String name(Class<?> type) {
+        String simple = type.getSimpleName();
+        StringBuilder sb = new StringBuilder(simple.length() + 4);
+        for (int i = 0; i < simple.length(); i++) {
+            char c = simple.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                sb.append('_');
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Retourne les mesures au format texte d'exposition de Prometheus.
+     *
+     * @return Le texte des mesures.
+     */
+    public static String scrape() {
+        Map<String, Counters> sorted = new TreeMap<>();
+        for (Counters counters : ALL) {
+            sorted.put(counters.name, counters);
+        }
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("# HELP calculator_operator_invocations_total Operator executions.\n");
+        sb.append("# TYPE calculator_operator_invocations_total counter\n");
+        sorted.forEach((name, c) -> sample(sb, "calculator_operator_invocations_total", name, null, c.invocations.sum()));
+        sb.append("# HELP calculator_operator_errors_total Operator executions that raised an arithmetic error.\n");
+        sb.append("# TYPE calculator_operator_errors_total counter\n");
+        sorted.forEach((name, c) -> sample(sb, "calculator_operator_errors_total", name, null, c.errors.sum()));
+        sb.append("# HELP calculator_operator_latency_seconds Operator execution time.\n");
+        sb.append("# TYPE calculator_operator_latency_seconds histogram\n");
+        sorted.forEach((name, c) -> {
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += c.buckets[i].sum();
+                if (i < BUCKETS - 1) {
+                    sample(sb, "calculator_operator_latency_seconds_bucket", name, Double.toString((1L << i) / 1e9), cumulative);
+                }
+            }
+            sample(sb, "calculator_operator_latency_seconds_bucket", name, "+Inf", cumulative);
+            sb.append("calculator_operator_latency_seconds_sum{operator=\"").append(name).append("\"} ")
+                    .append(c.nanos.sum() / 1e9).append('\n');
+            sample(sb, "calculator_operator_latency_seconds_count", name, null, cumulative);
+        });
+        sb.append("# HELP calculator_max_stack_depth Largest stack size observed after an operator.\n");
+        sb.append("# TYPE calculator_max_stack_depth gauge\n");
+        sb.append("calculator_max_stack_depth ").append(MAX_STACK_DEPTH.get()).append('\n');
+        return sb.toString();
+    }
+
+    private static void sample(StringBuilder sb, String metric, String operator, String le, long value) {
+        sb.append(metric).append("{operator=\"").append(operator);
+        if (le != null) {
+            sb.append("\",le=\"").append(le);
+        }
+        sb.append("\"} ").append(value).append('\n');
+    }
+
+    /**
+     * Remet toutes les mesures à zéro.
+     */
+    public static void reset() {
+        for (Counters counters : ALL) {
+            counters.invocations.reset();
+            counters.errors.reset();
+            counters.nanos.reset();
+            for (LongAdder bucket : counters.buckets) {
+                bucket.reset();
+            }
+        }
+        MAX_STACK_DEPTH.reset();
+    }
+
+    /**
+     * Publie les mesures sur le serveur JMX de la plateforme, sous {@value #OBJECT_NAME}.
+     * Sans effet si elles y sont déjà.
+     */
+    public static synchronized void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Sert {@link #scrape()} en HTTP sur {@code /metrics}, sur l'interface locale, dans un thread démon.
+     *
+     * @param port Le port d'écoute (0 pour un port libre quelconque).
+     * @return Le serveur démarré, à arrêter par {@link HttpServer#stop(int)}.
+     * @throws IOException si le port ne peut pas être ouvert.
+     */
+    public static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // Le thread de répartition du serveur hérite du statut démon du thread qui le démarre.
+        Thread starter = new Thread(server::start);
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return server;
+    }
+
+    /**
+     * Interface JMX des mesures.
+     */
+    public interface MetricsMXBean {
+        /**
+         * @return Le nombre d'exécutions de chaque opérateur.
+         */
+        Map<String, Long> getInvocations();
+
+        /**
+         * @return Le nombre d'erreurs de calcul de chaque opérateur.
+         */
+        Map<String, Long> getErrors();
+
+        /**
+         * @return La durée moyenne d'exécution de chaque opérateur, en nanosecondes.
+         */
+        Map<String, Double> getMeanLatencyNanos();
+
+        /**
+         * @return La plus grande taille de pile observée.
+         */
+        long getMaxStackDepth();
+
+        /**
+         * @return true si l'instrumentation est activée.
+         */
+        boolean isEnabled();
+
+        /**
+         * Remet toutes les mesures à zéro.
+         */
+        void reset();
+    }
+
+    /**
+     * Implémentation du MXBean, qui lit les compteurs partagés.
+     */
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getInvocations() {
+            Map<String, Long> values = new TreeMap<>();
+            ALL.forEach(c -> values.put(c.name, c.invocations.sum()));
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getErrors() {
+            Map<String, Long> values = new TreeMap<>();
+            ALL.forEach(c -> values.put(c.name, c.errors.sum()));
+            return values;
+        }
+
+        @Override
+        public Map<String, Double> getMeanLatencyNanos() {
+            Map<String, Double> values = new TreeMap<>();
+            ALL.forEach(c -> {
+                long timed = 0;
+                for (LongAdder bucket : c.buckets) {
+                    timed += bucket.sum();
+                }
+                values.put(c.name, timed == 0 ? 0 : (double) c.nanos.sum() / timed);
+            });
+            return values;
+        }
+
+        @Override
+        public long getMaxStackDepth() {
+            return MAX_STACK_DEPTH.get();
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.Arrays;
+
+/**
+ * Programme RPN décodé en codes d'opération ({@link Opcodes}) et exécuté par un interpréteur.
+ *
+ * Les instructions sont décodées une fois pour toutes dans un tableau {@code int[]} ; l'exécution
+ * est une simple boucle sur ce tableau, dont chaque code est traité par un {@code switch},
+ * sur une pile locale {@code double[]} et un indice de sommet qui restent dans des registres.
+ * Aucun appel virtuel à {@link Operator#execute(State)} ni aucun accès à l'état n'a lieu
+ * pendant la boucle : seules les valeurs de la pile réellement consommées par le programme
+ * sont lues dans l'état avant l'exécution, et les résultats y sont replacés à la fin.
+ *
+ * {@link #execute(State)} reproduit exactement {@link Program#execute(State)} (messages,
+ * erreurs et valeur courante compris) et {@link #evaluate(double[])} reproduit
+ * {@link Program#evaluate(double[])}. Un programme est immuable et peut être partagé entre threads.
+ */
+public final class OpcodeProgram {
+
+    private static final int UNCHANGED = 0;  // valeur courante non modifiée par le programme
+    private static final int NUMBER = 1;     // valeur courante définie par le programme
+    private static final int CLEARED = 2;    // valeur courante effacée par clear
+
+    private final int[] code;
+    private final double[] constants;  // valeur de chaque instruction VALUE, au même indice
+    private final int requiredInputs;
+    private final Program program;
+
+    /**
+     * Constructeur d'un programme décodé.
+     *
+     * @param code      Les codes d'opération ; seuls VALUE, les opérations sur la pile et CLEAR sont admis.
+     * @param constants Les valeurs des instructions VALUE, au même indice que leur code.
+     * @param length    Le nombre d'instructions.
+     * @param program   Le programme d'origine, ou null.
+     * @throws IllegalArgumentException si un code n'est pas admis.
+     */
+    OpcodeProgram(int[] code, double[] constants, int length, Program program) {
+        this.code = Arrays.copyOf(code, length);
+        this.constants = Arrays.copyOf(constants, length);
+        this.program = program;
+
+        // Nombre de valeurs de l'état consommées par le programme : celles qu'il retire
+        // au-delà de ce qu'il a lui-même empilé, avant un éventuel clear.
+        int inputs = 0;
+        int depth = 0;
+        boolean cleared = false;
+        for (int opcode : this.code) {
+            if (opcode == Opcodes.VALUE) {
+                depth++;
+            } else if (opcode == Opcodes.CLEAR) {
+                depth = 1;
+                cleared = true;
+            } else {
+                int arity = arity(opcode);
+                if (depth < arity && cleared) {
+                    depth++;  // opérandes manquants : seule la valeur courante est empilée
+                    continue;
+                }
+                if (depth < arity) {
+                    inputs += arity - depth;
+                    depth = arity;
+                }
+                depth -= arity - 1;
+            }
+        }
+        requiredInputs = inputs;
+    }
+
+    /**
+     * Décode un programme analysé.
+     *
+     * @param program Le programme.
+     * @return Le programme décodé.
+     * @throws IllegalArgumentException si le programme contient un opérateur qui ne travaille pas sur la pile.
+     */
+    public static OpcodeProgram decode(Program program) {
+        int[] code = new int[program.size()];
+        double[] constants = new double[program.size()];
+        for (int i = 0; i < code.length; i++) {
+            Operator operator = program.operator(i);
+            if (operator == null) {
+                code[i] = Opcodes.VALUE;
+                constants[i] = program.literal(i);
+            } else {
+                code[i] = Opcodes.of(operator);
+            }
+        }
+        return new OpcodeProgram(code, constants, code.length, program);
+    }
+
+    /**
+     * Retourne le nombre d'opérandes retirés de la pile par un code d'opération.
+     *
+     * @param opcode Le code.
+     * @return 2 pour une opération binaire, 1 pour une opération unaire.
+     * @throws IllegalArgumentException si le code n'est pas admis dans un programme.
+     */
+    static int arity(int opcode) {
+        return switch (opcode) {
+            case Opcodes.ADD, Opcodes.SUBTRACT, Opcodes.MULTIPLY, Opcodes.DIVIDE -> 2;
+            case Opcodes.SQUARE_ROOT, Opcodes.SQUARE, Opcodes.RECIPROCAL -> 1;
+            default -> throw new IllegalArgumentException("Unsupported opcode: " + opcode);
+        };
+    }
+
+    /**
+     * Exécute le programme sur un état, avec la même sémantique que {@link Program#execute(State)} :
+     * un nombre est empilé, un opérateur est appliqué puis la valeur courante est empilée.
+     *
+     * @param state L'état sur lequel exécuter le programme.
+     */
+    public void execute(State state) {
+        int loaded = Math.min(requiredInputs, state.stackSize());
+        double[] stack = new double[loaded + code.length];  // chaque instruction empile au plus une valeur
+        for (int i = loaded - 1; i >= 0; i--) {
+            stack[i] = state.popFromStack();
+        }
+        int sp = loaded;
+        double value = state.value();
+        int valueKind = UNCHANGED;
+        boolean cleared = false;
+        boolean prepared = false;
+        String error = null;
+
+        int[] code = this.code;
+        for (int pc = 0; pc < code.length; pc++) {
+            int opcode = code[pc];
+            String previous = error;
+            switch (opcode) {
+                case Opcodes.VALUE -> {
+                    value = constants[pc];
+                    valueKind = NUMBER;
+                }
+                case Opcodes.ADD, Opcodes.SUBTRACT, Opcodes.MULTIPLY, Opcodes.DIVIDE -> {
+                    if (sp < 2) {
+                        Diagnostics.underflow(Opcodes.operator(opcode), sp);
+                        error = Operator.UNDERFLOW;
+                        break;
+                    }
+                    double b = stack[--sp];
+                    double a = stack[--sp];
+                    prepared = true;
+                    if (opcode == Opcodes.DIVIDE && b == 0) {
+                        error = Division.ERROR;  // la valeur courante reste inchangée
+                        break;
+                    }
+                    value = switch (opcode) {
+                        case Opcodes.ADD -> a + b;
+                        case Opcodes.SUBTRACT -> a - b;
+                        case Opcodes.MULTIPLY -> a * b;
+                        default -> a / b;
+                    };
+                    valueKind = NUMBER;
+                }
+                case Opcodes.SQUARE_ROOT, Opcodes.SQUARE, Opcodes.RECIPROCAL -> {
+                    if (sp < 1) {
+                        Diagnostics.underflow(Opcodes.operator(opcode), sp);
+                        error = Operator.UNDERFLOW;
+                        break;
+                    }
+                    double a = stack[--sp];
+                    prepared = true;
+                    if (opcode == Opcodes.SQUARE_ROOT && a < 0) {
+                        error = SquareRoot.ERROR;
+                        break;
+                    }
+                    if (opcode == Opcodes.RECIPROCAL && a == 0) {
+                        error = Reciprocal.ERROR;
+                        break;
+                    }
+                    value = switch (opcode) {
+                        case Opcodes.SQUARE_ROOT -> Math.sqrt(a);
+                        case Opcodes.SQUARE -> a * a;
+                        default -> 1 / a;
+                    };
+                    valueKind = NUMBER;
+                }
+                case Opcodes.CLEAR -> {
+                    sp = 0;
+                    value = 0;
+                    valueKind = CLEARED;
+                    cleared = true;
+                }
+                default -> throw new IllegalStateException("Unsupported opcode: " + opcode);
+            }
+            stack[sp++] = value;  // comme Program#execute : la valeur courante est toujours empilée
+            if (Metrics.ENABLED && opcode != Opcodes.VALUE) {
+                Metrics.interpreted(opcode, error != previous && error != Operator.UNDERFLOW);  // erreurs de calcul seulement
+            }
+        }
+
+        if (cleared) {
+            state.clear();  // vide aussi la partie de la pile non chargée
+        }
+        for (int i = 0; i < sp; i++) {
+            state.pushToStack(stack[i]);
+        }
+        if (valueKind == NUMBER) {
+            state.setValue(value);
+        }
+        if (error != null) {
+            state.setError(error);
+        }
+        if (prepared) {
+            state.prepareForNextOperand();
+        }
+        if (Metrics.ENABLED) {
+            Metrics.stackDepth(state.stackSize());
+        }
+    }
+
+    /**
+     * Évalue le programme comme une formule, avec la même sémantique que {@link Program#evaluate(double[])}.
+     *
+     * @param inputs Les valeurs d'entrée, la première en bas de la pile.
+     * @return La valeur au sommet de la pile à la fin du programme (0 si la pile est vide).
+     * @throws ArithmeticException      si une opération sort de son domaine (division par zéro...).
+     * @throws IllegalArgumentException s'il y a moins d'entrées que nécessaire.
+     * @throws IllegalStateException    si le programme manque d'opérandes après un {@code clear}.
+     */
+    public double evaluate(double[] inputs) {
+        double[] result = new double[1];
+        int status = evaluate(inputs, result);
+        if (status != Status.OK) {
+            throw Status.exception(status);
+        }
+        return result[0];
+    }
+
+    /**
+     * Évalue le programme comme une formule, sans exception pour les erreurs de calcul : une
+     * opération hors de son domaine arrête l'évaluation et retourne son code d'état. C'est la
+     * variante à utiliser lorsque les erreurs sont fréquentes dans les données.
+     *
+     * @param inputs Les valeurs d'entrée, la première en bas de la pile.
+     * @param result Le tableau dont le premier élément reçoit le résultat, si le calcul réussit.
+     * @return {@link Status#OK}, ou le code de la première erreur de calcul.
+     * @throws IllegalArgumentException s'il y a moins d'entrées que nécessaire.
+     * @throws IllegalStateException    si le programme manque d'opérandes après un {@code clear}.
+     */
+    int evaluate(double[] inputs, double[] result) {
+        if (program != null) {
+            program.checkEvaluable();
+        }
+        if (inputs.length < requiredInputs) {
+            throw new IllegalArgumentException(Program.inputsError(requiredInputs));
+        }
+        double[] stack = new double[requiredInputs + code.length];
+        System.arraycopy(inputs, 0, stack, 0, requiredInputs);
+        int sp = requiredInputs;
+
+        int[] code = this.code;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case Opcodes.VALUE -> stack[sp++] = constants[pc];
+                case Opcodes.ADD -> {
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                }
+                case Opcodes.SUBTRACT -> {
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                }
+                case Opcodes.MULTIPLY -> {
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                }
+                case Opcodes.DIVIDE -> {
+                    sp--;
+                    if (stack[sp] == 0) {
+                        return Status.DIVISION_BY_ZERO;
+                    }
+                    stack[sp - 1] /= stack[sp];
+                }
+                case Opcodes.SQUARE -> stack[sp - 1] *= stack[sp - 1];
+                case Opcodes.SQUARE_ROOT -> {
+                    if (stack[sp - 1] < 0) {
+                        return Status.NEGATIVE_SQUARE_ROOT;
+                    }
+                    stack[sp - 1] = Math.sqrt(stack[sp - 1]);
+                }
+                case Opcodes.RECIPROCAL -> {
+                    if (stack[sp - 1] == 0) {
+                        return Status.RECIPROCAL_OF_ZERO;
+                    }
+                    stack[sp - 1] = 1 / stack[sp - 1];
+                }
+                case Opcodes.CLEAR -> {
+                    stack[0] = 0;
+                    sp = 1;
+                }
+                default -> throw new IllegalStateException("Unsupported opcode: " + code[pc]);
+            }
+        }
+        result[0] = sp == 0 ? 0 : stack[sp - 1];
+        return Status.OK;
+    }
+
+    /**
+     * Retourne le nombre d'instructions du programme.
+     *
+     * @return Le nombre d'instructions.
+     */
+    public int size() {
+        return code.length;
+    }
+
+    /**
+     * Retourne le nombre de valeurs de la pile consommées par le programme.
+     *
+     * @return Le nombre d'entrées nécessaires.
+     */
+    public int requiredInputs() {
+        return requiredInputs;
+    }
+}
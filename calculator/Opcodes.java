@@ -0,0 +1,134 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+/**
+ * Table des codes d'opération : chaque opérateur de la calculatrice est identifié par
+ * un code tenant sur un octet, utilisé pour enregistrer les opérations sous forme binaire.
+ * Le code 0 ({@link #END}) est réservé pour marquer la fin d'une suite de codes.
+ */
+final class Opcodes {
+
+    /**
+     * Fin d'une suite de codes.
+     */
+    static final int END = 0;
+
+    /**
+     * Définit la valeur courante ; suivi de la valeur (8 octets, IEEE-754).
+     */
+    static final int VALUE = 1;
+
+    /**
+     * Empile la valeur courante.
+     */
+    static final int PUSH = 2;
+
+    static final int ADD = 3;
+    static final int SUBTRACT = 4;
+    static final int MULTIPLY = 5;
+    static final int DIVIDE = 6;
+    static final int SQUARE_ROOT = 7;
+    static final int SQUARE = 8;
+    static final int RECIPROCAL = 9;
+    static final int CLEAR = 10;
+    static final int ENTER = 11;
+    static final int BACKSPACE = 12;
+    static final int CLEAR_ERROR = 13;
+    static final int MEMORY_RECALL = 14;
+    static final int MEMORY_STORE = 15;
+    static final int CHANGE_SIGN = 16;
+    static final int APPEND_DOT = 17;
+
+    /**
+     * Code du chiffre 0 ; le chiffre d est codé {@code DIGIT + d}.
+     */
+    static final int DIGIT = 20;
+
+    /**
+     * Nombre de codes possibles.
+     */
+    static final int COUNT = DIGIT + 10;
+
+    /**
+     * Une instance de chaque opérateur, indexée par son code ; les opérateurs sont sans état.
+     */
+    private static final Operator[] OPERATORS = new Operator[COUNT];
+
+    static {
+        OPERATORS[ADD] = new Addition();
+        OPERATORS[SUBTRACT] = new Subtraction();
+        OPERATORS[MULTIPLY] = new Multiplication();
+        OPERATORS[DIVIDE] = new Division();
+        OPERATORS[SQUARE_ROOT] = new SquareRoot();
+        OPERATORS[SQUARE] = new Square();
+        OPERATORS[RECIPROCAL] = new Reciprocal();
+        OPERATORS[CLEAR] = new Clear();
+        OPERATORS[ENTER] = new Enter();
+        OPERATORS[BACKSPACE] = new BackSpace();
+        OPERATORS[CLEAR_ERROR] = new ClearError();
+        OPERATORS[MEMORY_RECALL] = new MemoryRecall();
+        OPERATORS[MEMORY_STORE] = new MemoryStore();
+        OPERATORS[CHANGE_SIGN] = new ChangeSign();
+        OPERATORS[APPEND_DOT] = new AppendDot();
+        for (int d = 0; d < 10; d++) {
+            OPERATORS[DIGIT + d] = new Digit(d);
+        }
+    }
+
+    private Opcodes() {}
+
+    /**
+     * Retourne le code d'un opérateur.
+     *
+     * @param operator L'opérateur.
+     * @return Son code.
+     * @throws IllegalArgumentException si l'opérateur n'a pas de code.
+     */
+    static int of(Operator operator) {
+        if (operator instanceof Addition) return ADD;
+        if (operator instanceof Subtraction) return SUBTRACT;
+        if (operator instanceof Multiplication) return MULTIPLY;
+        if (operator instanceof Division) return DIVIDE;
+        if (operator instanceof SquareRoot) return SQUARE_ROOT;
+        if (operator instanceof Square) return SQUARE;
+        if (operator instanceof Reciprocal) return RECIPROCAL;
+        if (operator instanceof Clear) return CLEAR;
+        if (operator instanceof Enter) return ENTER;
+        if (operator instanceof BackSpace) return BACKSPACE;
+        if (operator instanceof ClearError) return CLEAR_ERROR;
+        if (operator instanceof MemoryRecall) return MEMORY_RECALL;
+        if (operator instanceof MemoryStore) return MEMORY_STORE;
+        if (operator instanceof ChangeSign) return CHANGE_SIGN;
+        if (operator instanceof AppendDot) return APPEND_DOT;
+        if (operator instanceof Digit digit && digit.digit >= 0 && digit.digit < 10) return DIGIT + digit.digit;
+        throw new IllegalArgumentException("Unsupported operator: " + operator.getClass().getSimpleName());
+    }
+
+    /**
+     * Indique si un code désigne un opérateur.
+     *
+     * @param opcode Le code.
+     * @return true si {@link #operator(int)} accepte ce code.
+     */
+    static boolean isOperator(int opcode) {
+        return opcode >= 0 && opcode < COUNT && OPERATORS[opcode] != null;
+    }
+
+    /**
+     * Retourne l'opérateur correspondant à un code.
+     *
+     * @param opcode Le code.
+     * @return L'opérateur.
+     * @throws IllegalArgumentException si le code ne désigne pas un opérateur.
+     */
+    static Operator operator(int opcode) {
+        if (!isOperator(opcode)) {
+            throw new IllegalArgumentException("Not an operator opcode: " + opcode);
+        }
+        return OPERATORS[opcode];
+    }
+}
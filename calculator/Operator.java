@@ -9,10 +9,66 @@ package calculator;
  * Classe abstraite représentant un opérateur.
  */
 abstract class Operator {
+    /**
+     * Erreur signalée par un opérateur qui n'a pas assez d'opérandes dans la pile.
+     */
+    static final String UNDERFLOW = "Not enough operands in the stack.";
+
     /**
      * Méthode abstraite d'exécution, à implémenter dans les sous-classes.
+     * Les opérateurs ne conservent aucun état propre : une même instance peut être
+     * utilisée simultanément sur des états différents depuis plusieurs threads.
+     *
+     * @param state L'état de la calculatrice sur lequel opérer.
      */
-    abstract void execute();
+    abstract void execute(State state);
+
+    /**
+     * Exécute l'opérateur, en mesurant son exécution si les {@link Metrics} sont activées et en
+     * la signalant au Flight Recorder si l'événement {@link FlightEvents.OperatorExecution} est
+     * enregistré. C'est le point d'entrée de tous les appelants ; {@link #execute(State)} n'est
+     * appelée que d'ici.
+     *
+     * @param state L'état de la calculatrice sur lequel opérer.
+     */
+    final void run(State state) {
+        if (!Metrics.ENABLED && !FlightEvents.operatorExecutionEnabled()) {
+            execute(state);
+            return;
+        }
+        FlightEvents.OperatorExecution event = new FlightEvents.OperatorExecution();
+        int stackBefore = state.stackSize();
+        int errors = state.errorCount();
+        event.begin();
+        long start = System.nanoTime();
+        execute(state);
+        long nanos = System.nanoTime() - start;
+        event.end();
+        int stackAfter = state.stackSize();
+        if (Metrics.ENABLED) {
+            Metrics.executed(this, nanos, stackAfter);
+        }
+        if (event.shouldCommit()) {
+            event.operator = getClass().getSimpleName();
+            event.stackBefore = stackBefore;
+            event.stackAfter = stackAfter;
+            event.outcome = stackBefore < arity() ? FlightEvents.OperatorExecution.UNDERFLOW
+                    : state.errorCount() != errors ? FlightEvents.OperatorExecution.ERROR
+                    : FlightEvents.OperatorExecution.OK;
+            event.commit();
+        }
+    }
+
+    /**
+     * Retourne le nombre d'opérandes que l'opérateur retire de la pile. C'est la seule source
+     * de cette information, utilisée aussi par l'analyse de pile de {@link Program}.
+     *
+     * @return 2 pour une opération binaire, 1 pour une opération unaire, 0 pour un opérateur
+     *         qui ne travaille pas sur la pile.
+     */
+    int arity() {
+        return 0;
+    }
 
     /**
      * Exécute une opération binaire en utilisant les deux opérandes données.
@@ -23,11 +79,14 @@ abstract class Operator {
      * @param operation L'opération binaire à exécuter.
      */
     protected void executeBinaryOperation(double operand1, double operand2, State state, BinaryOperation operation) {
-        try {
-            double result = operation.compute(operand1, operand2);
-            state.setValue(result);
-        } catch (ArithmeticException e) {
-            state.setError(e.getMessage());
+        int status = operation.status(operand1, operand2);
+        if (status == Status.OK) {
+            state.setValue(operation.compute(operand1, operand2));
+        } else {
+            state.setError(Status.message(status));
+            if (Metrics.ENABLED) {
+                Metrics.failed(operation);
+            }
         }
     }
 
@@ -41,6 +100,17 @@ abstract class Operator {
     double compute(double operand1, double operand2) {
         return 0;
     }
+
+    /**
+     * Vérifie que deux opérandes sont dans le domaine de l'opération binaire, sans lever d'exception.
+     *
+     * @param operand1 Premier opérande.
+     * @param operand2 Deuxième opérande.
+     * @return {@link Status#OK}, ou le code de l'erreur ; redéfinie par les opérations partielles.
+     */
+    int status(double operand1, double operand2) {
+        return Status.OK;
+    }
 }
 
 /**
@@ -59,8 +129,7 @@ class Digit extends Operator {
     }
 
     @Override
-    void execute() {
-        State state = State.getState();
+    void execute(State state) {
 
         if (state.isWaitingForNextOperand()) {
             state.setValue(0); // Réinitialise l'affichage
@@ -76,8 +145,8 @@ class Digit extends Operator {
  */
 class BackSpace extends Operator {
     @Override
-    void execute() {
-        State.getState().delLastValue();
+    void execute(State state) {
+        state.delLastValue();
     }
 }
 
@@ -86,8 +155,8 @@ class BackSpace extends Operator {
  */
 class ClearError extends Operator {
     @Override
-    void execute() {
-        State.getState().clearError();
+    void execute(State state) {
+        state.clearError();
     }
 }
 
@@ -96,8 +165,8 @@ class ClearError extends Operator {
  */
 class Clear extends Operator {
     @Override
-    void execute() {
-        State.getState().clear();
+    void execute(State state) {
+        state.clear();
     }
 }
 
@@ -106,8 +175,8 @@ class Clear extends Operator {
  */
 class MemoryRecall extends Operator {
     @Override
-    void execute() {
-        State.getState().recallValue();
+    void execute(State state) {
+        state.recallValue();
     }
 }
 
@@ -116,8 +185,8 @@ class MemoryRecall extends Operator {
  */
 class MemoryStore extends Operator {
     @Override
-    void execute() {
-        State.getState().storeValue();
+    void execute(State state) {
+        state.storeValue();
     }
 }
 
@@ -126,8 +195,8 @@ class MemoryStore extends Operator {
  */
 class ChangeSign extends Operator {
     @Override
-    void execute() {
-        State.getState().changeSign();
+    void execute(State state) {
+        state.changeSign();
     }
 }
 
@@ -136,8 +205,8 @@ class ChangeSign extends Operator {
  */
 class AppendDot extends Operator {
     @Override
-    void execute() {
-        State.getState().appendDot();
+    void execute(State state) {
+        state.appendDot();
     }
 }
 
@@ -157,25 +226,58 @@ abstract class UnaryOperation extends Operator {
     }
 
     @Override
-    void execute() {
-        State state = State.getState();
+    int arity() {
+        return 1;
+    }
+
+    @Override
+    void execute(State state) {
         if (state.stackSize() < 1) {
-            System.out.println("Not enough operands in the stack.");
+            Diagnostics.underflow(this, state.stackSize());
+            state.setError(UNDERFLOW);
             return;
         }
 
         double operand = state.popFromStack();
-        try {
-            double result = operation.apply(operand);
-            state.setValue(result);
-        } catch (ArithmeticException e) {
-            state.setError(e.getMessage());
+        int status = status(operand);
+        if (status == Status.OK) {
+            state.setValue(operation.apply(operand));
+        } else {
+            state.setError(Status.message(status));
+            if (Metrics.ENABLED) {
+                Metrics.failed(this);
+            }
         }
         state.prepareForNextOperand();
     }
 
     /**
-     * Interface fonctionnelle pour les fonctions unaires.
+     * Vérifie que l'opérande est dans le domaine de l'opération, sans lever d'exception.
+     *
+     * @param operand L'opérande.
+     * @return {@link Status#OK}, ou le code de l'erreur ; redéfinie par les opérations partielles.
+     */
+    int status(double operand) {
+        return Status.OK;
+    }
+
+    /**
+     * Calcule l'opération unaire sur un opérande.
+     *
+     * @param operand L'opérande.
+     * @return Le résultat du calcul.
+     * @throws ArithmeticException si l'opérande est hors du domaine de l'opération.
+     */
+    double compute(double operand) {
+        int status = status(operand);
+        if (status != Status.OK) {
+            throw Status.exception(status);
+        }
+        return operation.apply(operand);
+    }
+
+    /**
+     * Interface fonctionnelle pour les fonctions unaires, appelées sur leur domaine seulement.
      */
     @FunctionalInterface
     interface UnaryFunction {
@@ -196,11 +298,15 @@ class Square extends UnaryOperation {
  * Classe représentant l'opération de racine carrée.
  */
 class SquareRoot extends UnaryOperation {
+    static final String ERROR = "Cannot compute square root of a negative number.";
+
     SquareRoot() {
-        super(operand -> {
-            if (operand < 0) throw new ArithmeticException("Cannot compute square root of a negative number.");
-            return Math.sqrt(operand);
-        });
+        super(Math::sqrt);
+    }
+
+    @Override
+    int status(double operand) {
+        return operand < 0 ? Status.NEGATIVE_SQUARE_ROOT : Status.OK;
     }
 }
 
@@ -208,11 +314,15 @@ class SquareRoot extends UnaryOperation {
  * Classe représentant l'opération de réciproque (1/x).
  */
 class Reciprocal extends UnaryOperation {
+    static final String ERROR = "Cannot compute reciprocal of zero.";
+
     Reciprocal() {
-        super(operand -> {
-            if (operand == 0) throw new ArithmeticException("Cannot compute reciprocal of zero.");
-            return 1 / operand;
-        });
+        super(operand -> 1 / operand);
+    }
+
+    @Override
+    int status(double operand) {
+        return operand == 0 ? Status.RECIPROCAL_OF_ZERO : Status.OK;
     }
 }
 
@@ -221,10 +331,15 @@ class Reciprocal extends UnaryOperation {
  */
 abstract class BinaryOperation extends Operator {
     @Override
-    void execute() {
-        State state = State.getState();
+    int arity() {
+        return 2;
+    }
+
+    @Override
+    void execute(State state) {
         if (state.stackSize() < 2) {
-            System.out.println("Not enough operands in the stack.");
+            Diagnostics.underflow(this, state.stackSize());
+            state.setError(UNDERFLOW);
             return;
         }
         double operand2 = state.popFromStack();
@@ -239,6 +354,7 @@ abstract class BinaryOperation extends Operator {
      * @param operand1 Premier opérande.
      * @param operand2 Deuxième opérande.
      * @return Le résultat du calcul.
+     * @throws ArithmeticException si les opérandes sont hors du domaine de l'opération.
      */
     abstract double compute(double operand1, double operand2);
 }
@@ -277,10 +393,17 @@ class Multiplication extends BinaryOperation {
  * Classe représentant l'opération de division.
  */
 class Division extends BinaryOperation {
+    static final String ERROR = "Illegal division";
+
+    @Override
+    int status(double operand1, double operand2) {
+        return operand2 == 0 ? Status.DIVISION_BY_ZERO : Status.OK;
+    }
+
     @Override
     double compute(double operand1, double operand2) {
         if (operand2 == 0) {
-            throw new ArithmeticException("Illegal division");
+            throw Status.exception(Status.DIVISION_BY_ZERO);
         }
         return operand1 / operand2;
     }
@@ -291,8 +414,7 @@ class Division extends BinaryOperation {
  */
 class Enter extends Operator {
     @Override
-    void execute() {
-        State state = State.getState();
+    void execute(State state) {
         double currentValue = state.value();
         state.pushToStack(currentValue);
         state.prepareForNextOperand();
@@ -300,11 +422,14 @@ class Enter extends Operator {
         if (currentOperator != null) {
             double operand1 = state.popFromStack();
             double operand2 = currentValue;
-            try {
-                double result = currentOperator.compute(operand1, operand2);
-                state.setValue(result);
-            } catch (ArithmeticException e) {
-                state.setError(e.getMessage());
+            int status = currentOperator.status(operand1, operand2);
+            if (status == Status.OK) {
+                state.setValue(currentOperator.compute(operand1, operand2));
+            } else {
+                state.setError(Status.message(status));
+                if (Metrics.ENABLED) {
+                    Metrics.failed(currentOperator);
+                }
             }
             state.setCurrentOperator(null);
             state.setWaitingForNextOperand(false);
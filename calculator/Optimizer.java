@@ -0,0 +1,147 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.Arrays;
+
+/**
+ * Passe d'optimisation des programmes RPN évalués comme des formules.
+ *
+ * Le programme est parcouru une fois avec une pile symbolique : chaque élément de la pile
+ * correspond à la suite d'instructions qui le calcule et sait s'il est constant. Sont appliqués :
+ * <ul>
+ *   <li>le pliage des constantes : un opérateur dont les opérandes sont constants est remplacé
+ *       par son résultat, calculé par l'opérateur lui-même ;</li>
+ *   <li>la suppression des éléments neutres qui laissent toute valeur inchangée au bit près :
+ *       {@code x 1 *}, {@code 1 x *}, {@code x 1 /}, {@code x 0 -}, {@code x -0 +} et
+ *       {@code -0 x +}, ainsi que la double négation {@code x -1 * -1 *}.</li>
+ * </ul>
+ * Un opérateur dont le calcul constant est en erreur ({@code 1 0 /}) est conservé tel quel :
+ * l'erreur est différée à l'évaluation, avec le même message et dans le même ordre.
+ *
+ * Le programme optimisé donne exactement le même résultat que l'original avec
+ * {@link Program#evaluate(double[])} et donc avec tous les modes qui en reproduisent la
+ * sémantique ({@link ProgramCompiler}, {@link ColumnarEvaluator}, {@link OpcodeProgram}).
+ * C'est pourquoi {@code x 0 +} n'est pas simplifié (-0 + 0 vaut +0), ni {@code x square sqrt}
+ * (qui vaut |x| et déborde pour les grandes valeurs) : ces formes ne sont réduites que si x
+ * est constant, par pliage. L'optimisation ne s'applique pas à {@link Program#execute(State)},
+ * qui empile aussi les résultats intermédiaires.
+ */
+public final class Optimizer {
+
+    private Optimizer() {}
+
+    /**
+     * Optimise un programme pour son évaluation comme une formule.
+     * Le nombre d'instructions avant et après est donné par {@link Program#size()}.
+     *
+     * @param program Le programme.
+     * @return Le programme optimisé, qui demande les mêmes entrées ; le programme lui-même
+     *         s'il ne peut pas être évalué comme une formule.
+     */
+    public static Program optimize(Program program) {
+        if (!program.isEvaluable()) {
+            return program;
+        }
+        int inputs = program.requiredInputs();
+        int length = program.size();
+        Operator[] operators = new Operator[length];
+        double[] literals = new double[length];
+        int count = 0;
+
+        // Pile symbolique ; les entrées occupent le bas de la pile et n'ont pas d'instructions.
+        int[] start = new int[inputs + length];        // première instruction de chaque élément
+        boolean[] constant = new boolean[inputs + length];
+        double[] value = new double[inputs + length];  // valeur d'un élément constant
+        boolean[] negated = new boolean[inputs + length];  // instructions terminées par -1 *
+        int sp = inputs;
+
+        for (int i = 0; i < length; i++) {
+            Operator operator = program.operator(i);
+            if (operator == null) {
+                start[sp] = count;
+                constant[sp] = true;
+                value[sp] = program.literal(i);
+                negated[sp++] = false;
+                literals[count++] = program.literal(i);
+                continue;
+            }
+            if (operator instanceof Clear) {
+                operators[count] = operator;
+                sp = 0;
+                start[sp] = count++;
+                constant[sp] = false;  // le 0 empilé par clear ne peut pas être retiré du programme
+                negated[sp++] = false;
+                continue;
+            }
+            if (operator instanceof UnaryOperation unary) {
+                int e = sp - 1;
+                if (constant[e] && unary.status(value[e]) == Status.OK) {
+                    value[e] = unary.compute(value[e]);
+                    literals[start[e]] = value[e];
+                    continue;
+                }  // sinon, erreur différée : l'opérateur est conservé
+                operators[count++] = operator;
+                constant[e] = false;
+                negated[e] = false;
+                continue;
+            }
+
+            BinaryOperation binary = (BinaryOperation) operator;
+            int a = sp - 2;
+            int b = sp - 1;
+            sp--;
+            if (constant[a] && constant[b] && binary.status(value[a], value[b]) == Status.OK) {
+                value[a] = binary.compute(value[a], value[b]);
+                literals[start[a]] = value[a];
+                count = start[b];
+                continue;
+            }  // sinon, erreur différée : l'opérateur est conservé
+            if (constant[b] && isRightIdentity(binary, value[b])) {
+                count = start[b];
+            } else if (constant[a] && isLeftIdentity(binary, value[a])) {
+                System.arraycopy(operators, start[a] + 1, operators, start[a], count - start[a] - 1);
+                System.arraycopy(literals, start[a] + 1, literals, start[a], count - start[a] - 1);
+                count--;
+                constant[a] = false;
+                negated[a] = negated[b];
+            } else if (binary instanceof Multiplication && constant[b] && value[b] == -1 && negated[a]) {
+                count = start[b] - 2;  // retire aussi le -1 * qui termine l'élément a
+                negated[a] = false;
+            } else {
+                operators[count++] = operator;
+                negated[a] = binary instanceof Multiplication && constant[b] && value[b] == -1;
+                constant[a] = false;
+            }
+        }
+        return new Program(Arrays.copyOf(operators, count), Arrays.copyOf(literals, count), inputs);
+    }
+
+    /**
+     * Indique si {@code x op c} vaut exactement x pour tout x, y compris ±0, ±∞ et NaN.
+     */
+    private static boolean isRightIdentity(BinaryOperation operator, double c) {
+        return (operator instanceof Multiplication || operator instanceof Division) && c == 1
+                || operator instanceof Subtraction && isPositiveZero(c)
+                || operator instanceof Addition && isNegativeZero(c);
+    }
+
+    /**
+     * Indique si {@code c op x} vaut exactement x pour tout x, y compris ±0, ±∞ et NaN.
+     */
+    private static boolean isLeftIdentity(BinaryOperation operator, double c) {
+        return operator instanceof Multiplication && c == 1
+                || operator instanceof Addition && isNegativeZero(c);
+    }
+
+    private static boolean isPositiveZero(double c) {
+        return Double.doubleToRawLongBits(c) == 0L;
+    }
+
+    private static boolean isNegativeZero(double c) {
+        return Double.doubleToRawLongBits(c) == Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Mode batch parallèle : chaque ligne de l'entrée est une expression RPN indépendante,
+ * évaluée sur un état neuf, et produit une ligne de résultat (la valeur courante ou l'erreur
+ * à la fin de la ligne ; une ligne vide produit une ligne vide).
+ *
+ * L'entrée est découpée en blocs d'environ {@code chunkSize} octets, coupés après une fin de
+ * ligne ; un fichier est projeté en mémoire par un {@link MappedSource} et ses blocs sont des
+ * vues des pages projetées, seule une ligne à cheval sur deux tranches étant copiée. Chaque bloc est évalué par une tâche d'un {@link ForkJoinPool}, avec son propre
+ * {@link State} et son propre {@link Lexer}, et les résultats sont écrits dans l'ordre de
+ * l'entrée. Le nombre de blocs en cours est borné, de sorte que la mémoire utilisée ne dépend
+ * pas de la taille de l'entrée. Avec un parallélisme de 1, les blocs sont évalués un à un dans
+ * le thread appelant, sans pool : le résultat est identique, ce qui permet de comparer.
+ */
+public final class ParallelBatch {
+
+    /**
+     * Taille approximative d'un bloc, par défaut (1 Mo).
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final int parallelism;
+    private final int chunkSize;
+    private final Operator[] operators;
+    private final String[] keywords;
+    private byte[] carry = new byte[0];  // début de la dernière ligne incomplète du bloc précédent
+
+    /**
+     * Constructeur du mode batch parallèle.
+     *
+     * @param parallelism Le nombre de threads d'évaluation ; 1 pour une évaluation séquentielle.
+     */
+    public ParallelBatch(int parallelism) {
+        this(parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructeur du mode batch parallèle.
+     *
+     * @param parallelism Le nombre de threads d'évaluation ; 1 pour une évaluation séquentielle.
+     * @param chunkSize   La taille approximative d'un bloc, en octets.
+     */
+    ParallelBatch(int parallelism, int chunkSize) {
+        if (parallelism <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("parallelism and chunkSize must be positive");
+        }
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.operators = Calculator.batchOperators();
+        this.keywords = Arrays.copyOf(Calculator.batchKeywords(), operators.length);
+    }
+
+    /**
+     * Évalue toutes les lignes d'un flux et écrit leurs résultats dans l'ordre.
+     *
+     * @param in  Le flux des expressions, une par ligne ; il n'est pas fermé.
+     * @param out La destination des résultats ; elle est vidée mais pas fermée.
+     * @throws IOException en cas d'erreur de lecture ou d'écriture.
+     */
+    public void run(InputStream in, Writer out) throws IOException {
+        carry = new byte[0];
+        run(() -> readChunk(in), out);
+    }
+
+    /**
+     * Évalue toutes les lignes d'un fichier, projeté en mémoire, et écrit leurs résultats dans l'ordre.
+     *
+     * @param file Le fichier des expressions, une par ligne.
+     * @param out  La destination des résultats ; elle est vidée mais pas fermée.
+     * @throws IOException en cas d'erreur de lecture ou d'écriture.
+     */
+    public void run(Path file, Writer out) throws IOException {
+        try (MappedSource source = new MappedSource(file, chunkSize)) {
+            carry = new byte[0];
+            ByteBuffer[] body = {null};  // bloc prêt, qui suit une ligne à cheval sur deux tranches
+            run(() -> {
+                ByteBuffer chunk = body[0];
+                body[0] = null;
+                return chunk != null ? chunk : nextLines(source, body);
+            }, out);
+        }
+    }
+
+    /**
+     * Évalue les blocs d'une source et écrit leurs résultats dans l'ordre.
+     */
+    private void run(Lexer.Source chunks, Writer out) throws IOException {
+        if (parallelism == 1) {
+            for (ByteBuffer chunk; (chunk = chunks.next()) != null; ) {
+                out.write(evaluate(chunk));
+            }
+            out.flush();
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Queue<ForkJoinTask<String>> pending = new ArrayDeque<>();
+            for (ByteBuffer chunk; (chunk = chunks.next()) != null; ) {
+                ByteBuffer submitted = chunk;
+                pending.add(pool.submit(() -> evaluate(submitted)));
+                if (pending.size() >= 2 * parallelism) {
+                    out.write(pending.remove().join());
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.write(pending.remove().join());
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Retourne le bloc suivant d'un fichier projeté, formé des lignes entières de la tranche
+     * suivante. Une ligne commencée dans la tranche précédente est copiée dans un bloc à part,
+     * retourné en premier ; le reste de la tranche est alors placé dans {@code body}.
+     *
+     * @param source Les tranches projetées du fichier.
+     * @param body   Reçoit le second bloc de la tranche, s'il y en a deux.
+     * @return Le bloc, ou null à la fin du fichier.
+     * @throws IOException en cas d'erreur de lecture.
+     */
+    private ByteBuffer nextLines(MappedSource source, ByteBuffer[] body) throws IOException {
+        for (ByteBuffer slice; (slice = source.next()) != null; ) {
+            int first = -1;
+            for (int i = 0; i < slice.limit() && first < 0; i++) {
+                if (slice.get(i) == '\n') {
+                    first = i;
+                }
+            }
+            if (first < 0) {  // tranche sans fin de ligne : tout est reporté
+                carry = append(carry, slice, 0, slice.limit());
+                continue;
+            }
+            int last = first;
+            for (int i = slice.limit() - 1; i > first; i--) {
+                if (slice.get(i) == '\n') {
+                    last = i;
+                    break;
+                }
+            }
+            ByteBuffer chunk;
+            if (carry.length == 0) {
+                chunk = slice.slice(0, last + 1);
+            } else {
+                chunk = ByteBuffer.wrap(append(carry, slice, 0, first + 1));
+                if (last > first) {
+                    body[0] = slice.slice(first + 1, last - first);
+                }
+            }
+            carry = append(new byte[0], slice, last + 1, slice.limit());
+            return chunk;
+        }
+        if (carry.length == 0) {
+            return null;
+        }
+        ByteBuffer chunk = ByteBuffer.wrap(carry);  // dernière ligne, sans fin de ligne
+        carry = new byte[0];
+        return chunk;
+    }
+
+    /**
+     * Retourne les octets d'un tableau suivis de ceux d'une partie d'un tampon.
+     */
+    private static byte[] append(byte[] bytes, ByteBuffer buffer, int from, int to) {
+        byte[] result = Arrays.copyOf(bytes, bytes.length + to - from);
+        buffer.get(from, result, bytes.length, to - from);
+        return result;
+    }
+
+    /**
+     * Lit le bloc suivant de l'entrée, coupé après sa dernière fin de ligne. Le reste est
+     * conservé pour le bloc suivant ; un bloc sans fin de ligne est agrandi jusqu'à en contenir une.
+     *
+     * @param in Le flux à lire.
+     * @return Le bloc, ou null à la fin de l'entrée.
+     * @throws IOException en cas d'erreur de lecture.
+     */
+    private ByteBuffer readChunk(InputStream in) throws IOException {
+        byte[] bytes = Arrays.copyOf(carry, Math.max(chunkSize, 2 * carry.length));
+        int length = carry.length;
+        int read = 0;
+        while (length < bytes.length && (read = in.read(bytes, length, bytes.length - length)) >= 0) {
+            length += read;
+        }
+        if (length == 0) {
+            return null;
+        }
+        int cut = length;
+        if (read >= 0) {  // entrée pas terminée : le bloc s'arrête après la dernière fin de ligne
+            cut = lastLineBreak(bytes, length) + 1;
+            if (cut == 0) {
+                carry = Arrays.copyOf(bytes, length);
+                return readChunk(in);
+            }
+        }
+        carry = Arrays.copyOfRange(bytes, cut, length);
+        return ByteBuffer.wrap(bytes, 0, cut);
+    }
+
+    private static int lastLineBreak(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Évalue les lignes d'un bloc, chacune sur un état remis à zéro.
+     *
+     * @param chunk Le bloc, formé de lignes entières.
+     * @return Les résultats, une ligne par ligne du bloc.
+     */
+    String evaluate(ByteBuffer chunk) {
+        ByteBuffer[] single = {chunk};
+        Lexer lexer = new Lexer(() -> {
+            ByteBuffer next = single[0];
+            single[0] = null;
+            return next;
+        }, keywords).reportLineBreaks(true);
+        State state = new State();
+        StringBuilder results = new StringBuilder(chunk.remaining() / 4);
+        boolean empty = true;
+        try {
+            int token;
+            while ((token = lexer.next()) != Lexer.EOF) {
+                if (token == Lexer.END_OF_LINE) {
+                    if (!empty) {
+                        results.append(state.getValueString());
+                        state.reset();
+                        empty = true;
+                    }
+                    results.append('\n');
+                    continue;
+                }
+                empty = false;
+                if (token == Lexer.NUMBER) {
+                    double number = lexer.number();
+                    state.setValue(number);
+                    state.pushToStack(number);
+                } else if (token == Lexer.WORD) {
+                    operators[lexer.keyword()].run(state);
+                    state.pushToStack(state.value());
+                } else {
+                    state.setError("Unknown command: " + lexer.text());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // impossible : le bloc est en mémoire
+        }
+        if (!empty) {
+            results.append(state.getValueString()).append('\n');
+        }
+        return results.toString();
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.nio.DoubleBuffer;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Classe représentant une pile persistante de valeurs de type double.
+ * Une pile n'est jamais modifiée : {@link #push(double)} et {@link #pop()} retournent une
+ * nouvelle pile qui partage tous ses éléments avec l'ancienne. Conserver une version de la
+ * pile coûte donc un simple pointeur, quelle que soit sa profondeur.
+ *
+ * Chaque élément est un nœud chaîné vers l'élément inférieur. Il porte en plus un pointeur
+ * de saut vers un ancêtre plus profond (piles à accès aléatoire de Myers), ce qui permet
+ * d'atteindre n'importe quelle position en O(log n) tout en gardant l'empilement en O(1).
+ */
+public final class PersistentStack {
+    private static final PersistentStack EMPTY = new PersistentStack();
+
+    private final double value;
+    private final PersistentStack next;
+    private final PersistentStack jump;
+    private final int size;
+
+    /**
+     * Constructeur de la pile vide, qui est son propre successeur.
+     */
+    private PersistentStack() {
+        value = 0;
+        next = this;
+        jump = this;
+        size = 0;
+    }
+
+    /**
+     * Constructeur d'un nœud posé sur une pile existante.
+     *
+     * @param value La valeur au sommet.
+     * @param next  La pile sous le sommet.
+     */
+    private PersistentStack(double value, PersistentStack next) {
+        this.value = value;
+        this.next = next;
+        this.size = next.size + 1;
+        PersistentStack far = next.jump;
+        // Deux sauts consécutifs de même longueur sont fusionnés : longueurs en binaire oblique.
+        this.jump = next.size - far.size == far.size - far.jump.size ? far.jump : next;
+    }
+
+    /**
+     * Retourne la pile vide.
+     *
+     * @return La pile vide, partagée par tous.
+     */
+    public static PersistentStack empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Retourne une pile formée de cette pile et d'une valeur au sommet.
+     *
+     * @param value La valeur à empiler.
+     * @return La nouvelle pile.
+     */
+    public PersistentStack push(double value) {
+        return new PersistentStack(value, this);
+    }
+
+    /**
+     * Retourne une pile formée de cette pile et de toutes les valeurs restantes d'un tampon,
+     * la dernière au sommet. La chaîne est construite en une passe sur le tampon, sans pile
+     * intermédiaire.
+     *
+     * @param values Les valeurs à empiler, lues jusqu'à la fin du tampon.
+     * @return La nouvelle pile.
+     */
+    public PersistentStack pushAll(DoubleBuffer values) {
+        PersistentStack top = this;
+        for (int i = values.position(), end = values.limit(); i < end; i++) {
+            top = new PersistentStack(values.get(i), top);
+        }
+        values.position(values.limit());
+        return top;
+    }
+
+    /**
+     * Copie des valeurs de la pile dans un tampon, autant que le tampon peut en recevoir, dans
+     * l'ordre de la base vers le sommet. Le dernier élément copié est atteint en O(log n) par les
+     * pointeurs de saut, puis la chaîne est parcourue vers la base : O(log n + k) pour k valeurs.
+     *
+     * @param from   La position de la première valeur copiée, depuis la base.
+     * @param target Le tampon de destination.
+     * @return Le nombre de valeurs copiées.
+     * @throws IndexOutOfBoundsException si la position est hors de la pile.
+     */
+    public int copyTo(int from, DoubleBuffer target) {
+        Objects.checkIndex(from, size + 1);
+        int count = Math.min(size - from, target.remaining());
+        int start = target.position();
+        PersistentStack node = truncate(from + count);
+        for (int i = start + count - 1; i >= start; i--, node = node.next) {
+            target.put(i, node.value);
+        }
+        target.position(start + count);
+        return count;
+    }
+
+    /**
+     * Retourne cette pile privée de son sommet.
+     *
+     * @return La pile sous le sommet.
+     * @throws NoSuchElementException si la pile est vide.
+     */
+    public PersistentStack pop() {
+        if (size == 0) {
+            throw new NoSuchElementException("La pile est vide");
+        }
+        return next;
+    }
+
+    /**
+     * Retourne la valeur au sommet de la pile.
+     *
+     * @return La valeur au sommet de la pile.
+     * @throws NoSuchElementException si la pile est vide.
+     */
+    public double peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("La pile est vide");
+        }
+        return value;
+    }
+
+    /**
+     * Retourne la valeur située à une position donnée, comptée depuis la base de la pile.
+     *
+     * @param index La position, de 0 (base) à size() - 1 (sommet).
+     * @return La valeur à cette position.
+     * @throws IndexOutOfBoundsException si la position est hors de la pile.
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return truncate(index + 1).value;
+    }
+
+    /**
+     * Retourne la version de cette pile réduite à ses {@code size} éléments inférieurs,
+     * en O(log n) grâce aux pointeurs de saut.
+     *
+     * @param size La taille voulue, au plus égale à la taille de cette pile.
+     * @return La pile réduite, partagée avec celle-ci.
+     */
+    PersistentStack truncate(int size) {
+        PersistentStack node = this;
+        while (node.size > size) {
+            node = node.jump.size >= size ? node.jump : node.next;
+        }
+        return node;
+    }
+
+    /**
+     * Retourne la taille de la plus grande base commune à deux versions d'une pile,
+     * c'est-à-dire la position du plus bas élément qui les distingue.
+     *
+     * @param other L'autre version.
+     * @return Le nombre d'éléments partagés depuis la base.
+     */
+    int commonSize(PersistentStack other) {
+        PersistentStack a = truncate(Math.min(size, other.size));
+        PersistentStack b = other.truncate(a.size);
+        while (a != b) {
+            a = a.next;
+            b = b.next;
+        }
+        return a.size;
+    }
+
+    /**
+     * Retourne une représentation sous forme de chaîne de caractères du contenu de la pile,
+     * du sommet vers la base.
+     *
+     * @return Une chaîne représentant les éléments de la pile.
+     */
+    @Override
+    public String toString() {
+        return toString(size);
+    }
+
+    /**
+     * Retourne une représentation limitée aux {@code limit} éléments du sommet de la pile,
+     * suivie du nombre total d'éléments lorsque la pile est tronquée.
+     *
+     * @param limit Le nombre maximal d'éléments affichés.
+     * @return Une chaîne représentant le sommet de la pile.
+     * @throws IllegalArgumentException si la limite est négative.
+     */
+    public String toString(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        StringBuilder sb = new StringBuilder("[");
+        PersistentStack node = this;
+        for (int i = 0; i < Math.min(limit, size); i++, node = node.next) {
+            if (i > 0) sb.append(", ");
+            sb.append(node.value);
+        }
+        if (size > limit) {
+            sb.append(limit > 0 ? ", ...] (" : "...] (").append(size).append(" values)");
+        } else {
+            sb.append("]");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Retourne un tableau représentant le contenu de la pile, de la base vers le sommet.
+     *
+     * @return Un tableau contenant les éléments de la pile.
+     */
+    public double[] toArray() {
+        double[] array = new double[size];
+        PersistentStack node = this;
+        for (int i = size - 1; i >= 0; i--, node = node.next) {
+            array[i] = node.value;
+        }
+        return array;
+    }
+
+    /**
+     * Vérifie si la pile est vide.
+     *
+     * @return true si la pile est vide, sinon false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retourne la taille de la pile.
+     *
+     * @return Le nombre d'éléments dans la pile.
+     */
+    public int size() {
+        return size;
+    }
+}
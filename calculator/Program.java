@@ -0,0 +1,311 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Programme RPN analysé : une suite d'instructions, chacune étant soit un nombre
+ * littéral, soit un opérateur de la table des commandes.
+ * Un programme est immuable et peut être partagé entre plusieurs threads.
+ *
+ * Un programme peut être exécuté de deux façons :
+ * <ul>
+ *   <li>{@link #execute(State)} reproduit exactement le REPL sur un état existant ;</li>
+ *   <li>{@link #evaluate(double[])} l'évalue comme une formule : les entrées sont empilées,
+ *       le sommet de la pile final est retourné et les erreurs de domaine sont levées
+ *       sous forme d'{@link ArithmeticException}.</li>
+ * </ul>
+ */
+public final class Program {
+    private final Operator[] operators;  // null pour un littéral
+    private final double[] literals;
+    private final int requiredInputs;
+    private final int maxDepth;
+    private final int finalDepth;
+    private final boolean evaluable;
+
+    /**
+     * Constructeur de Program.
+     *
+     * @param operators Les opérateurs de chaque instruction (null pour un littéral).
+     * @param literals  Les valeurs des instructions littérales.
+     */
+    Program(Operator[] operators, double[] literals) {
+        this(operators, literals, 0);
+    }
+
+    /**
+     * Constructeur de Program avec un nombre minimal d'entrées, pour un programme transformé
+     * qui doit rester évaluable avec les mêmes entrées que l'original (voir {@link Optimizer}).
+     *
+     * @param operators     Les opérateurs de chaque instruction (null pour un littéral).
+     * @param literals      Les valeurs des instructions littérales.
+     * @param minimumInputs Le nombre minimal d'entrées empilées avant l'évaluation.
+     */
+    Program(Operator[] operators, double[] literals, int minimumInputs) {
+        this.operators = operators;
+        this.literals = literals;
+
+        // Analyse statique de la profondeur de pile : nombre d'entrées nécessaires,
+        // puis profondeurs maximale et finale une fois ces entrées empilées.
+        int inputs = 0;
+        int depth = 0;
+        boolean cleared = false;
+        boolean valid = true;
+        for (Operator operator : operators) {
+            if (operator == null) {
+                depth++;
+            } else if (operator instanceof Clear) {
+                depth = 1;  // la pile est vidée puis la valeur courante (0) est empilée
+                cleared = true;
+            } else {
+                int arity = operator.arity();
+                if (arity == 0) {
+                    throw new IllegalArgumentException("Unsupported operator: " + operator.getClass().getSimpleName());
+                }
+                if (depth < arity) {
+                    if (cleared) {
+                        valid = false;  // les entrées ont été effacées : rien ne peut combler le manque
+                        break;
+                    }
+                    inputs += arity - depth;
+                    depth = arity;
+                }
+                depth -= arity - 1;
+            }
+        }
+        requiredInputs = Math.max(inputs, minimumInputs);
+        evaluable = valid;
+
+        depth = requiredInputs;
+        int max = depth;
+        for (int i = 0; valid && i < operators.length; i++) {
+            Operator operator = operators[i];
+            depth = operator == null ? depth + 1
+                    : operator instanceof Clear ? 1
+                    : depth - operator.arity() + 1;
+            max = Math.max(max, depth);
+        }
+        maxDepth = max;
+        finalDepth = depth;
+    }
+
+    /**
+     * Analyse une suite de jetons séparés par des espaces.
+     *
+     * @param text       Le texte du programme.
+     * @param commandMap La table des commandes reconnues.
+     * @return Le programme analysé.
+     * @throws IllegalArgumentException si un jeton n'est pas reconnu.
+     */
+    public static Program parse(String text, Map<String, Operator> commandMap) {
+        String[] commands = commandMap.keySet().toArray(new String[0]);
+        Lexer lexer = Lexer.of(text, commands);
+        Operator[] operators = new Operator[16];
+        double[] literals = new double[16];
+        int count = 0;
+        try {
+            for (int token = lexer.next(); token != Lexer.EOF; token = lexer.next()) {
+                if (count == operators.length) {
+                    operators = Arrays.copyOf(operators, 2 * count);
+                    literals = Arrays.copyOf(literals, 2 * count);
+                }
+                if (token == Lexer.NUMBER) {
+                    literals[count] = lexer.number();
+                } else if (token == Lexer.WORD) {
+                    operators[count] = commandMap.get(commands[lexer.keyword()]);
+                } else {
+                    throw new IllegalArgumentException("Unknown command: " + lexer.text());
+                }
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // impossible : le texte est déjà en mémoire
+        }
+        return new Program(Arrays.copyOf(operators, count), Arrays.copyOf(literals, count));
+    }
+
+    /**
+     * Exécute le programme sur un état, instruction par instruction, comme le REPL :
+     * un nombre est empilé, un opérateur est exécuté puis la valeur courante est empilée.
+     *
+     * @param state L'état sur lequel exécuter le programme.
+     */
+    public void execute(State state) {
+        for (int i = 0; i < operators.length; i++) {
+            step(state, i);
+        }
+    }
+
+    /**
+     * Exécute une seule instruction sur un état.
+     *
+     * @param state L'état.
+     * @param i     L'indice de l'instruction.
+     */
+    void step(State state, int i) {
+        Operator operator = operators[i];
+        if (operator == null) {
+            state.setValue(literals[i]);
+            state.pushToStack(literals[i]);
+        } else {
+            operator.run(state);
+            state.pushToStack(state.value());
+        }
+    }
+
+    /**
+     * Évalue le programme comme une formule. Les {@link #requiredInputs()} premières entrées
+     * sont empilées (la première en bas de la pile), puis chaque instruction est exécutée.
+     *
+     * @param inputs Les valeurs d'entrée.
+     * @return La valeur au sommet de la pile à la fin du programme (0 si la pile est vide).
+     * @throws ArithmeticException      si une opération sort de son domaine (division par zéro...).
+     * @throws IllegalArgumentException s'il y a moins d'entrées que nécessaire.
+     * @throws IllegalStateException    si le programme manque d'opérandes après un {@code clear}.
+     */
+    public double evaluate(double[] inputs) {
+        checkEvaluable();
+        checkInputs(inputs);
+        State state = new State();
+        for (int i = 0; i < requiredInputs; i++) {
+            state.pushToStack(inputs[i]);
+        }
+        for (int i = 0; i < operators.length; i++) {
+            step(state, i);
+            if (state.hasError()) {
+                throw new ArithmeticException(state.getValueString());
+            }
+        }
+        return state.isStackEmpty() ? 0 : state.popFromStack();
+    }
+
+    /**
+     * Vérifie que le programme peut être évalué comme une formule, c'est-à-dire qu'aucun
+     * opérateur ne manque d'opérandes après un {@code clear}.
+     *
+     * @throws IllegalStateException si le programme manque d'opérandes.
+     */
+    void checkEvaluable() {
+        if (!evaluable) {
+            throw new IllegalStateException(Operator.UNDERFLOW);
+        }
+    }
+
+    /**
+     * Indique si le programme peut être évalué comme une formule.
+     *
+     * @return false si un opérateur manque d'opérandes après un {@code clear}.
+     */
+    boolean isEvaluable() {
+        return evaluable;
+    }
+
+    /**
+     * Vérifie qu'il y a suffisamment d'entrées pour évaluer le programme.
+     *
+     * @param inputs Les valeurs d'entrée.
+     * @throws IllegalArgumentException s'il y a moins d'entrées que nécessaire.
+     */
+    void checkInputs(double[] inputs) {
+        if (inputs.length < requiredInputs) {
+            throw new IllegalArgumentException(inputsError(requiredInputs));
+        }
+    }
+
+    /**
+     * Message d'erreur signalant un nombre d'entrées insuffisant.
+     *
+     * @param required Le nombre d'entrées nécessaires.
+     * @return Le message d'erreur.
+     */
+    static String inputsError(int required) {
+        return "Program needs " + required + " input(s)";
+    }
+
+    /**
+     * Retourne le nombre d'instructions du programme.
+     *
+     * @return Le nombre d'instructions.
+     */
+    public int size() {
+        return operators.length;
+    }
+
+    /**
+     * Retourne l'opérateur d'une instruction.
+     *
+     * @param i L'indice de l'instruction.
+     * @return L'opérateur, ou null si l'instruction est un littéral.
+     */
+    Operator operator(int i) {
+        return operators[i];
+    }
+
+    /**
+     * Retourne la valeur d'une instruction littérale.
+     *
+     * @param i L'indice de l'instruction.
+     * @return La valeur du littéral.
+     */
+    double literal(int i) {
+        return literals[i];
+    }
+
+    /**
+     * Retourne le nombre de valeurs que le programme retire de la pile au-delà de ce qu'il empile,
+     * c'est-à-dire le nombre d'entrées nécessaires à son évaluation.
+     *
+     * @return Le nombre d'entrées nécessaires.
+     */
+    public int requiredInputs() {
+        return requiredInputs;
+    }
+
+    /**
+     * Retourne la profondeur de pile maximale atteinte, entrées comprises.
+     *
+     * @return La profondeur maximale.
+     */
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Retourne la profondeur de pile à la fin du programme, entrées comprises.
+     *
+     * @return La profondeur finale.
+     */
+    int finalDepth() {
+        return finalDepth;
+    }
+
+    /**
+     * Retourne le texte RPN du programme, avec les noms de la table des commandes.
+     *
+     * @return Les instructions séparées par des espaces.
+     */
+    @Override
+    public String toString() {
+        Map<Class<?>, String> names = new HashMap<>();
+        Calculator.createCommandMap().forEach((name, operator) -> names.put(operator.getClass(), name));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < operators.length; i++) {
+            if (i > 0) sb.append(' ');
+            if (operators[i] == null) {
+                sb.append(literals[i]);
+            } else {
+                sb.append(names.getOrDefault(operators[i].getClass(), operators[i].getClass().getSimpleName()));
+            }
+        }
+        return sb.toString();
+    }
+}
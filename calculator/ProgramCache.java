@@ -0,0 +1,208 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache borné des programmes analysés, indexé par le texte normalisé de l'expression.
+ * Une expression commençant par {@link InfixParser#PREFIX} est analysée en notation infixe.
+ * Les expressions déjà vues ne sont plus analysées ; leur version compilée est produite
+ * (ou décodée pour l'interpréteur) à la première demande puis conservée avec le programme. Lorsque le cache est plein,
+ * l'expression utilisée le moins récemment est évincée.
+ * Le cache est thread-safe ; les compteurs de succès, d'échecs et d'évictions
+ * peuvent être lus à tout moment.
+ */
+public class ProgramCache {
+    private final Map<String, Operator> commandMap;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructeur du cache.
+     *
+     * @param capacity   Nombre maximal d'expressions conservées.
+     * @param commandMap La table des commandes utilisée pour l'analyse.
+     */
+    public ProgramCache(int capacity, Map<String, Operator> commandMap) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.commandMap = commandMap;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retourne le programme correspondant à une expression, en l'analysant si nécessaire.
+     *
+     * @param text Le texte de l'expression.
+     * @return Le programme analysé.
+     * @throws IllegalArgumentException si l'expression contient un jeton inconnu
+     *                                  ou, en notation infixe, est mal formée.
+     */
+    public Program get(String text) {
+        return entry(text).program;
+    }
+
+    /**
+     * Retourne la version compilée d'une expression, en la compilant à la première demande.
+     * La version compilée n'est utilisée que comme formule : elle est d'abord optimisée par {@link Optimizer}.
+     *
+     * @param text Le texte de l'expression.
+     * @return Le programme compilé.
+     * @throws IllegalArgumentException si l'expression contient un jeton inconnu
+     *                                  ou ne peut pas être compilée.
+     */
+    public CompiledProgram getCompiled(String text) {
+        Entry entry = entry(text);
+        CompiledProgram compiled = entry.compiled;
+        if (compiled == null) {
+            compiled = ProgramCompiler.compile(Optimizer.optimize(entry.program));
+            entry.compiled = compiled;  // une compilation concurrente en double est sans conséquence
+        }
+        return compiled;
+    }
+
+    /**
+     * Retourne la version décodée d'une expression pour l'interpréteur, en la décodant à la première demande.
+     *
+     * @param text Le texte de l'expression.
+     * @return Le programme décodé.
+     * @throws IllegalArgumentException si l'expression contient un jeton inconnu
+     *                                  ou un opérateur qui ne travaille pas sur la pile.
+     */
+    public OpcodeProgram getOpcodes(String text) {
+        Entry entry = entry(text);
+        OpcodeProgram opcodes = entry.opcodes;
+        if (opcodes == null) {
+            opcodes = OpcodeProgram.decode(entry.program);
+            entry.opcodes = opcodes;
+        }
+        return opcodes;
+    }
+
+    /**
+     * Retourne l'entrée d'une expression, en l'analysant et en l'ajoutant si elle est absente.
+     * L'analyse se fait hors du verrou pour ne pas bloquer les autres lectures.
+     *
+     * @param text Le texte de l'expression.
+     * @return L'entrée du cache.
+     */
+    private Entry entry(String text) {
+        String key = normalize(text);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        Entry parsed = new Entry(!key.isEmpty() && key.charAt(0) == InfixParser.PREFIX
+                ? InfixParser.parse(key.substring(1).trim(), commandMap)
+                : Program.parse(key, commandMap));
+        synchronized (entries) {
+            entry = entries.putIfAbsent(key, parsed);
+        }
+        return entry != null ? entry : parsed;
+    }
+
+    /**
+     * Normalise une expression : espaces superflus retirés et commandes en minuscules,
+     * afin que des écritures équivalentes partagent la même entrée.
+     *
+     * @param text Le texte de l'expression.
+     * @return Le texte normalisé.
+     */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Retourne le nombre d'expressions actuellement en cache.
+     *
+     * @return Le nombre d'entrées.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Retourne le nombre de recherches satisfaites par le cache.
+     *
+     * @return Le nombre de succès.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Retourne le nombre de recherches ayant nécessité une analyse.
+     *
+     * @return Le nombre d'échecs.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Retourne le nombre d'expressions évincées faute de place.
+     *
+     * @return Le nombre d'évictions.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ProgramCache[size=" + size() + ", hits=" + hits() + ", misses=" + misses()
+                + ", evictions=" + evictions() + "]";
+    }
+
+    /**
+     * Entrée du cache : le programme analysé et, si elles ont été demandées, ses versions compilée et décodée.
+     */
+    private static final class Entry {
+        final Program program;
+        volatile CompiledProgram compiled;
+        volatile OpcodeProgram opcodes;
+
+        Entry(Program program) {
+            this.program = program;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compilateur de programmes RPN en bytecode JVM.
+ *
+ * Chaque programme devient une classe cachée ({@link MethodHandles.Lookup#defineHiddenClass})
+ * implémentant {@link CompiledProgram}. La pile RPN est directement la pile d'opérandes de la
+ * JVM : la profondeur de chaque instruction est connue à la compilation, si bien que la formule
+ * entière n'est qu'une suite d'instructions {@code dadd}/{@code dmul}... que le JIT peut intégrer.
+ * Les contrôles de domaine (division par zéro, racine d'un négatif, inverse de zéro) lèvent les
+ * mêmes {@link ArithmeticException} que l'interpréteur, avec les mêmes messages.
+ *
+ * Le format de classe 49 est utilisé car il ne requiert pas de table {@code StackMapTable}
+ * pour les branchements des contrôles de domaine.
+ */
+public final class ProgramCompiler {
+    private static final int CLASS_VERSION = 49;
+    private static final String CLASS_NAME = "calculator/GeneratedProgram";
+    private static final String ARITHMETIC_EXCEPTION = "java/lang/ArithmeticException";
+    private static final String ILLEGAL_ARGUMENT_EXCEPTION = "java/lang/IllegalArgumentException";
+
+    // Opcodes JVM utilisés.
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD_2 = 0x28;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int DALOAD = 0x31;
+    private static final int DSTORE_2 = 0x49;
+    private static final int POP2 = 0x58;
+    private static final int DUP = 0x59;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DCMPL = 0x97;
+    private static final int DCMPG = 0x98;
+    private static final int IFNE = 0x9a;
+    private static final int IFGE = 0x9c;
+    private static final int IF_ICMPGE = 0xa2;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int ARRAYLENGTH = 0xbe;
+    private static final int ATHROW = 0xbf;
+
+    /**
+     * Taille en octets de la séquence émise par {@link MethodWriter#throwNew}.
+     */
+    private static final int THROW_LENGTH = 11;
+
+    private ProgramCompiler() {}
+
+    /**
+     * Compile un programme en une classe cachée.
+     *
+     * @param program Le programme à compiler.
+     * @return Une instance de la classe générée.
+     * @throws IllegalArgumentException si le programme contient un opérateur non compilable
+     *                                  ou dépasse la taille d'une méthode JVM.
+     * @throws IllegalStateException    si le programme manque d'opérandes après un {@code clear}.
+     */
+    public static CompiledProgram compile(Program program) {
+        program.checkEvaluable();
+        byte[] bytes = generate(program);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledProgram) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot load compiled program", e);
+        }
+    }
+
+    /**
+     * Génère le fichier de classe d'un programme.
+     *
+     * @param program Le programme à compiler.
+     * @return Le contenu du fichier de classe.
+     */
+    static byte[] generate(Program program) {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int iface = pool.classRef(CompiledProgram.class.getName().replace('.', '/'));
+        int code = pool.utf8("Code");
+
+        MethodWriter init = new MethodWriter(pool);
+        init.op(ALOAD_0);
+        init.op(INVOKESPECIAL).u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+        init.op(RETURN);
+
+        MethodWriter eval = new MethodWriter(pool);
+        emitEval(program, eval, pool);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            int initName = pool.utf8("<init>");
+            int initType = pool.utf8("()V");
+            int evalName = pool.utf8("eval");
+            int evalType = pool.utf8("([D)D");
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            pool.write(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020);  // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(iface);
+            out.writeShort(0);  // aucun champ
+            out.writeShort(2);
+            writeMethod(out, initName, initType, code, init, 1, 1);
+            writeMethod(out, evalName, evalType, code, eval, 2 * program.maxDepth() + 6, 4);
+            out.writeShort(0);  // aucun attribut de classe
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Émet le corps de {@code double eval(double[] inputs)}.
+     *
+     * @param program Le programme à compiler.
+     * @param m       Le corps de méthode à remplir.
+     * @param pool    Le pool de constantes de la classe.
+     */
+    private static void emitEval(Program program, MethodWriter m, ConstantPool pool) {
+        int inputs = program.requiredInputs();
+        if (inputs > 0) {
+            m.op(ALOAD_1).op(ARRAYLENGTH).pushInt(inputs);
+            m.op(IF_ICMPGE).u2(3 + THROW_LENGTH);
+            m.throwNew(ILLEGAL_ARGUMENT_EXCEPTION, Program.inputsError(inputs));
+        }
+        for (int i = 0; i < inputs; i++) {
+            m.op(ALOAD_1).pushInt(i).op(DALOAD);
+        }
+
+        int depth = inputs;
+        for (int i = 0; i < program.size(); i++) {
+            Operator operator = program.operator(i);
+            if (operator == null) {
+                m.pushDouble(program.literal(i));
+                depth++;
+            } else if (operator instanceof Addition) {
+                m.op(DADD);
+                depth--;
+            } else if (operator instanceof Subtraction) {
+                m.op(DSUB);
+                depth--;
+            } else if (operator instanceof Multiplication) {
+                m.op(DMUL);
+                depth--;
+            } else if (operator instanceof Division) {
+                m.op(DUP2).op(DCONST_0).op(DCMPL).op(IFNE).u2(3 + THROW_LENGTH);
+                m.throwNew(ARITHMETIC_EXCEPTION, Division.ERROR);
+                m.op(DDIV);
+                depth--;
+            } else if (operator instanceof Square) {
+                m.op(DUP2).op(DMUL);
+            } else if (operator instanceof SquareRoot) {
+                // dcmpg place NaN au-dessus de zéro : sqrt(NaN) ne lève pas d'erreur, comme l'interpréteur.
+                m.op(DUP2).op(DCONST_0).op(DCMPG).op(IFGE).u2(3 + THROW_LENGTH);
+                m.throwNew(ARITHMETIC_EXCEPTION, SquareRoot.ERROR);
+                m.op(INVOKESTATIC).u2(pool.methodRef("java/lang/Math", "sqrt", "(D)D"));
+            } else if (operator instanceof Reciprocal) {
+                m.op(DUP2).op(DCONST_0).op(DCMPL).op(IFNE).u2(3 + THROW_LENGTH);
+                m.throwNew(ARITHMETIC_EXCEPTION, Reciprocal.ERROR);
+                m.op(DSTORE_2).op(DCONST_1).op(DLOAD_2).op(DDIV);
+            } else if (operator instanceof Clear) {
+                for (; depth > 0; depth--) {
+                    m.op(POP2);
+                }
+                m.op(DCONST_0);
+                depth = 1;
+            } else {
+                throw new IllegalArgumentException(
+                        "Cannot compile operator: " + operator.getClass().getSimpleName());
+            }
+        }
+        if (depth == 0) {
+            m.op(DCONST_0);
+        }
+        m.op(DRETURN);
+    }
+
+    /**
+     * Écrit une méthode publique et son attribut {@code Code}.
+     */
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                    MethodWriter method, int maxStack, int maxLocals) throws IOException {
+        byte[] code = method.toByteArray();
+        if (code.length > 0xFFFF) {
+            throw new IllegalArgumentException("Program too large to compile: " + code.length + " bytes");
+        }
+        out.writeShort(0x0001);  // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);  // aucune entrée de table d'exceptions
+        out.writeShort(0);  // aucun attribut
+    }
+
+    /**
+     * Pool de constantes d'un fichier de classe, sans doublons.
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indices = new HashMap<>();
+        private int count = 1;
+
+        private int add(String key, int slots, Entry entry) {
+            Integer index = indices.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                entry.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            int added = count;
+            count += slots;
+            if (count > 0xFFFF) {
+                throw new IllegalArgumentException("Program too large to compile: constant pool overflow");
+            }
+            indices.put(key, added);
+            return added;
+        }
+
+        int utf8(String value) {
+            return add("U" + value, 1, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return add("C" + name, 1, () -> {
+                out.writeByte(7);
+                out.writeShort(nameIndex);
+            });
+        }
+
+        int string(String value) {
+            int valueIndex = utf8(value);
+            return add("S" + value, 1, () -> {
+                out.writeByte(8);
+                out.writeShort(valueIndex);
+            });
+        }
+
+        int integer(int value) {
+            return add("I" + value, 1, () -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        int doubleValue(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            return add("D" + bits, 2, () -> {
+                out.writeByte(6);
+                out.writeLong(bits);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = add("N" + name + ":" + descriptor, 1, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return add("M" + owner + "." + name + ":" + descriptor, 1, () -> {
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+
+        @FunctionalInterface
+        private interface Entry {
+            void write() throws IOException;
+        }
+    }
+
+    /**
+     * Tampon de bytecode d'une méthode.
+     */
+    private static final class MethodWriter {
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final ConstantPool pool;
+
+        MethodWriter(ConstantPool pool) {
+            this.pool = pool;
+        }
+
+        MethodWriter op(int opcode) {
+            code.write(opcode);
+            return this;
+        }
+
+        MethodWriter u2(int value) {
+            code.write(value >>> 8);
+            code.write(value);
+            return this;
+        }
+
+        MethodWriter pushInt(int value) {
+            if (value <= 5) {
+                return op(ICONST_0 + value);
+            }
+            if (value <= Byte.MAX_VALUE) {
+                return op(BIPUSH).op(value);
+            }
+            if (value <= Short.MAX_VALUE) {
+                return op(SIPUSH).u2(value);
+            }
+            return op(LDC_W).u2(pool.integer(value));
+        }
+
+        MethodWriter pushDouble(double value) {
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                return op(DCONST_0);
+            }
+            if (value == 1.0) {
+                return op(DCONST_1);
+            }
+            return op(LDC2_W).u2(pool.doubleValue(value));
+        }
+
+        /**
+         * Émet {@code throw new <exception>(message)} ; occupe THROW_LENGTH octets.
+         */
+        MethodWriter throwNew(String exception, String message) {
+            op(NEW).u2(pool.classRef(exception));
+            op(DUP);
+            op(LDC_W).u2(pool.string(message));
+            op(INVOKESPECIAL).u2(pool.methodRef(exception, "<init>", "(Ljava/lang/String;)V"));
+            return op(ATHROW);
+        }
+
+        byte[] toByteArray() {
+            return code.toByteArray();
+        }
+    }
+}
@@ -71,6 +71,29 @@ public class Stack<T> implements Iterable<T> {
         return sb.toString();
     }
 
+    /**
+     * Retourne une représentation limitée aux {@code limit} éléments du sommet de la pile,
+     * suivie du nombre total d'éléments lorsque la pile est tronquée.
+     *
+     * @param limit Le nombre maximal d'éléments affichés.
+     * @return Une chaîne représentant le sommet de la pile.
+     * @throws IllegalArgumentException si la limite est négative.
+     */
+    public String toString(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        if (size <= limit) {
+            return toString();
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = size - 1; i >= size - limit; i--) {
+            sb.append(elements[i]).append(", ");
+        }
+        sb.append("...] (").append(size).append(" values)");
+        return sb.toString();
+    }
+
     /**
      * Retourne un tableau représentant l'état actuel de la pile.
      *
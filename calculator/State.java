@@ -5,27 +5,38 @@
 
 package calculator;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+
 /**
  * Classe représentant l'état de la calculatrice.
  * Gère la valeur courante, la mémoire, les erreurs, et la pile des opérations.
+ * Une instance n'est pas thread-safe : chaque calcul (session) utilise la sienne,
+ * par exemple obtenue auprès d'un {@link StatePool}.
  */
 public class State {
-    private static State instance;
-    private String value = "";
-    private String memory = "0";
+    private double number = 0;      // valeur courante, lorsque text vaut null
+    private String text = "";       // saisie en cours ; null si la valeur courante est numérique
+    private String formatted = null; // formatage de number, calculé à la demande
+    private double memory = 0;
     private String error = "";
     private boolean hasError = false;
     private boolean isMutable = true;
     private Operator currentOperator = null;
     private boolean waitingForNextOperand = false;
     private boolean clearedOnNextInput = false;
+    private int errorCount = 0;     // nombre d'erreurs signalées depuis la création de l'état
 
     /**
      * Constructeur par défaut de la classe State.
      */
     public State() {}
 
-    private Stack<Double> stack = new Stack<>();
+    private final DoubleStack stack = new DoubleStack();
+    private PersistentStack persistent = null;  // remplace stack lorsque l'historique est activé
+    private PersistentStack seen = null;        // version de persistent vue par markStackSeen
 
     /**
      * Empile une valeur sur la pile.
@@ -33,7 +44,11 @@ public class State {
      * @param value La valeur à empiler.
      */
     public void pushToStack(double value) {
-        stack.push(value);
+        if (persistent != null) {
+            persistent = persistent.push(value);
+        } else {
+            stack.push(value);
+        }
     }
 
     /**
@@ -42,10 +57,15 @@ public class State {
      * @return La valeur désemparée.
      */
     public double popFromStack() {
-        if (stack.isEmpty()) {
+        if (isStackEmpty()) {
             setError("Stack is empty");
             return 0;
         }
+        if (persistent != null) {
+            double value = persistent.peek();
+            persistent = persistent.pop();
+            return value;
+        }
         return stack.pop();
     }
 
@@ -55,54 +75,109 @@ public class State {
      * @return Une chaîne représentant les éléments de la pile.
      */
     public String stackToString() {
-        return stack.toString();
+        return persistent != null ? persistent.toString() : stack.toString();
     }
 
     /**
-     * Retourne un tableau représentant l'état actuel de la pile.
+     * Retourne une représentation des {@code limit} éléments du sommet de la pile,
+     * suivie du nombre total d'éléments si la pile est plus profonde.
      *
-     * @return Un tableau contenant les éléments de la pile.
+     * @param limit Le nombre maximal d'éléments affichés.
+     * @return Une chaîne représentant le sommet de la pile.
      */
-    public Object[] stackToArray() {
-        return stack.toArray();
+    public String stackToString(int limit) {
+        return persistent != null ? persistent.toString(limit) : stack.toString(limit);
     }
 
     /**
-     * Retourne l'instance unique de l'état.
+     * Retourne la valeur de la pile située à une position donnée, sans copier la pile.
      *
-     * @return L'instance unique de la classe State.
+     * @param index La position, de 0 (base) à stackSize() - 1 (sommet).
+     * @return La valeur à cette position.
      */
-    public static State getState() {
-        if (instance == null) {
-            instance = new State();
+    public double stackValueAt(int index) {
+        return persistent != null ? persistent.get(index) : stack.get(index);
+    }
+
+    /**
+     * Retourne la position du plus bas élément de la pile modifié depuis le dernier
+     * appel de cette méthode, puis marque la pile comme vue.
+     * Permet à une vue de ne rafraîchir que les éléments ajoutés ou retirés.
+     *
+     * @return La position du plus bas élément modifié (égale à stackSize() si rien n'a changé).
+     */
+    public int markStackSeen() {
+        if (persistent != null) {
+            int low = seen != null ? persistent.commonSize(seen) : 0;
+            seen = persistent;
+            return low;
         }
-        return instance;
+        int low = stack.lowWaterMark();
+        stack.markLowWater();
+        return low;
+    }
+
+    /**
+     * Retourne un tableau représentant l'état actuel de la pile.
+     *
+     * @return Un tableau contenant les éléments de la pile.
+     */
+    public double[] stackToArray() {
+        return persistent != null ? persistent.toArray() : stack.toArray();
+    }
+
+    /**
+     * Remet l'état dans sa configuration initiale : valeur, mémoire, erreur,
+     * opérateur courant et pile. Permet de réutiliser une instance pour une nouvelle session.
+     */
+    public void reset() {
+        number = 0;
+        text = "";
+        memory = 0;
+        error = "";
+        hasError = false;
+        isMutable = true;
+        currentOperator = null;
+        waitingForNextOperand = false;
+        clearedOnNextInput = false;
+        persistent = null;
+        seen = null;
+        clearStack();
     }
 
     /**
      * Efface les erreurs actuelles et réinitialise l'état mutable.
      */
     public void clearError() {
-        value = "";
+        text = "";
         error = "";
         hasError = false;
         isMutable = true;
     }
 
+    /**
+     * Acquitte l'erreur actuelle après qu'elle a été signalée, sans toucher à la valeur
+     * courante ni à la pile : les calculs suivants affichent de nouveau leur résultat.
+     */
+    void dismissError() {
+        error = "";
+        hasError = false;
+    }
+
     /**
      * Vérifie si la pile est vide.
      *
      * @return true si la pile est vide, sinon false.
      */
     public boolean isStackEmpty() {
-        return stack.isEmpty();
+        return persistent != null ? persistent.isEmpty() : stack.isEmpty();
     }
 
     /**
      * Efface la valeur actuelle et réinitialise la pile.
      */
     public void clear() {
-        value = "";
+        text = "";
         isMutable = true;
         clearStack();
     }
@@ -111,9 +186,10 @@ public class State {
      * Vide la pile des valeurs.
      */
     private void clearStack() {
-        while (!stack.isEmpty()) {
-            stack.pop();  // Dépile tous les éléments
+        if (persistent != null) {
+            persistent = PersistentStack.empty();
         }
+        stack.clear();
     }
 
     /**
@@ -123,18 +199,20 @@ public class State {
      */
     public void appendValue(int x) {
         if (clearedOnNextInput) {
-            value = "";
+            text = "";
             clearedOnNextInput = false;
         }
-        value += x;
+        text = text() + x;
     }
 
     /**
      * Ajoute un point décimal à la valeur actuelle.
      */
     public void appendDot() {
-        if (value.isEmpty()) value += "0";
-        if (!value.contains(".")) value += ".";
+        String current = text();
+        if (current.isEmpty()) current = "0";
+        if (!current.contains(".")) current += ".";
+        text = current;
     }
 
     /**
@@ -151,7 +229,12 @@ public class State {
     public void changeSign() {
         if (!hasError) {
             double val = value();
-            value = val > 0 ? "-" + value : value.substring(1);
+            String current = text();
+            if (val > 0) {
+                text = "-" + current;
+            } else if (!current.isEmpty()) {
+                text = current.substring(1);
+            }
         }
     }
 
@@ -159,8 +242,11 @@ public class State {
      * Supprime le dernier chiffre de la valeur actuelle.
      */
     public void delLastValue() {
-        if (isMutable && !value.isEmpty()) {
-            value = value.substring(0, value.length() - 1);
+        if (isMutable) {
+            String current = text();
+            if (!current.isEmpty()) {
+                text = current.substring(0, current.length() - 1);
+            }
         }
     }
 
@@ -169,7 +255,7 @@ public class State {
      */
     public void storeValue() {
         if (!hasError) {
-            memory = value.isEmpty() ? "0" : value;
+            memory = value();
         }
     }
 
@@ -177,8 +263,7 @@ public class State {
      * Rappelle la valeur stockée en mémoire.
      */
     public void recallValue() {
-        value = memory;
-        isMutable = false;
+        setValue(memory);
     }
 
     /**
@@ -187,7 +272,13 @@ public class State {
      * @return La valeur actuelle ou l'erreur si elle est présente.
      */
     public String getValueString() {
-        return hasError ? error : (value.isEmpty() ? "0" : value);
+        if (hasError) {
+            return error;
+        }
+        if (text != null) {
+            return text.isEmpty() ? "0" : text;
+        }
+        return formattedNumber();
     }
 
     /**
@@ -196,10 +287,13 @@ public class State {
      * @return La valeur actuelle.
      */
     public double value() {
+        if (text == null) {
+            return number;
+        }
         try {
-            return value.isEmpty() ? 0 : Double.parseDouble(value);
+            return text.isEmpty() ? 0 : Double.parseDouble(text);
         } catch (NumberFormatException e) {
-            setError("Invalid number format: " + value);
+            setError("Invalid number format: " + text);
             return 0;
         }
     }
@@ -210,10 +304,37 @@ public class State {
      * @param x La valeur à définir.
      */
     public void setValue(double x) {
-        value = formatValue(x);
+        number = x;
+        text = null;
+        formatted = null;
         isMutable = false;
     }
 
+    /**
+     * Retourne le texte de la saisie en cours, en formatant la valeur numérique
+     * si l'utilisateur commence à la modifier.
+     *
+     * @return Le texte de la valeur courante.
+     */
+    private String text() {
+        if (text == null) {
+            text = formattedNumber();
+        }
+        return text;
+    }
+
+    /**
+     * Retourne le formatage de la valeur numérique courante.
+     *
+     * @return La valeur formatée.
+     */
+    private String formattedNumber() {
+        if (formatted == null) {
+            formatted = formatValue(number);
+        }
+        return formatted;
+    }
+
     /**
      * Formate la valeur pour supprimer la partie décimale si elle est inutile.
      *
@@ -226,12 +347,38 @@ public class State {
 
     /**
      * Définit le message d'erreur actuel.
+     * L'erreur est aussi signalée au Flight Recorder, s'il enregistre.
      *
      * @param errorMessage Le message d'erreur.
      */
     public void setError(String errorMessage) {
         error = errorMessage;
         hasError = true;
+        errorCount++;
+        FlightEvents.StateError event = new FlightEvents.StateError();
+        if (event.shouldCommit()) {
+            event.message = errorMessage;
+            event.commit();
+        }
+    }
+
+    /**
+     * Retourne le nombre d'erreurs signalées sur cet état depuis sa création.
+     * Il n'est pas remis à zéro par {@link #reset()} et permet de savoir si une opération a échoué.
+     *
+     * @return Le nombre d'appels à {@link #setError(String)}.
+     */
+    int errorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Indique si une erreur est en cours.
+     *
+     * @return true si une erreur a été signalée et non effacée, sinon false.
+     */
+    public boolean hasError() {
+        return hasError;
     }
 
     /**
@@ -276,7 +423,156 @@ public class State {
      * @return Le nombre d'éléments dans la pile.
      */
     public int stackSize() {
-        return stack.size();
+        return persistent != null ? persistent.size() : stack.size();
+    }
+
+    /**
+     * Remplace la pile par une pile persistante, de même contenu, afin de permettre
+     * les instantanés en O(1). Sans effet si c'est déjà le cas.
+     */
+    public void usePersistentStack() {
+        if (persistent == null) {
+            PersistentStack copy = PersistentStack.empty();
+            for (double value : stack.toArray()) {
+                copy = copy.push(value);
+            }
+            persistent = copy;
+            stack.clear();
+        }
+    }
+
+    /**
+     * Capture l'état complet : valeur courante, mémoire, erreur, opérateur courant et pile.
+     * La pile persistante est partagée, pas copiée : l'instantané coûte O(1) en temps et en mémoire.
+     *
+     * @return L'instantané de l'état.
+     * @throws IllegalStateException si la pile n'est pas persistante ({@link #usePersistentStack()}).
+     */
+    public Snapshot snapshot() {
+        if (persistent == null) {
+            throw new IllegalStateException("Snapshots need a persistent stack");
+        }
+        return new Snapshot(this);
+    }
+
+    /**
+     * Rétablit un état capturé par {@link #snapshot()}. Seuls des pointeurs sont recopiés.
+     *
+     * @param snapshot L'instantané à rétablir.
+     */
+    public void restore(Snapshot snapshot) {
+        number = snapshot.number;
+        text = snapshot.text;
+        formatted = snapshot.formatted;
+        memory = snapshot.memory;
+        error = snapshot.error;
+        hasError = snapshot.hasError;
+        isMutable = snapshot.isMutable;
+        currentOperator = snapshot.currentOperator;
+        waitingForNextOperand = snapshot.waitingForNextOperand;
+        clearedOnNextInput = snapshot.clearedOnNextInput;
+        persistent = snapshot.stack;
+    }
+
+    /**
+     * Écrit les champs scalaires de l'état sous forme binaire : valeur courante, mémoire,
+     * erreur, opérateur courant (par son code) et indicateurs de saisie. La pile n'est pas écrite.
+     *
+     * @param out La destination.
+     * @throws IOException en cas d'erreur d'écriture.
+     */
+    public void writeScalarsTo(DataOutput out) throws IOException {
+        out.writeDouble(number);
+        out.writeBoolean(text != null);
+        if (text != null) {
+            out.writeUTF(text);
+        }
+        out.writeDouble(memory);
+        out.writeBoolean(hasError);
+        out.writeUTF(error);
+        out.writeBoolean(isMutable);
+        out.writeByte(currentOperator == null ? Opcodes.END : Opcodes.of(currentOperator));
+        out.writeBoolean(waitingForNextOperand);
+        out.writeBoolean(clearedOnNextInput);
+    }
+
+    /**
+     * Remplace les champs scalaires de l'état par ceux écrits par {@link #writeScalarsTo(DataOutput)}.
+     * La pile n'est pas modifiée.
+     *
+     * @param in La source.
+     * @throws IOException en cas d'erreur de lecture ou d'opérateur courant inconnu.
+     */
+    public void readScalarsFrom(DataInput in) throws IOException {
+        number = in.readDouble();
+        text = in.readBoolean() ? in.readUTF() : null;
+        formatted = null;
+        memory = in.readDouble();
+        hasError = in.readBoolean();
+        error = in.readUTF();
+        isMutable = in.readBoolean();
+        int operator = in.readUnsignedByte();
+        if (operator != Opcodes.END && !Opcodes.isOperator(operator)) {
+            throw new IOException("Not an operator opcode: " + operator);
+        }
+        currentOperator = operator == Opcodes.END ? null : Opcodes.operator(operator);
+        waitingForNextOperand = in.readBoolean();
+        clearedOnNextInput = in.readBoolean();
+    }
+
+    /**
+     * Empile d'un bloc les valeurs restantes d'un tampon, la première allant le plus bas.
+     *
+     * @param values Les valeurs à empiler.
+     */
+    public void pushAllToStack(DoubleBuffer values) {
+        if (persistent != null) {
+            persistent = persistent.pushAll(values);
+        } else {
+            stack.pushAll(values);
+        }
+    }
+
+    /**
+     * Copie des valeurs de la pile dans un tampon, sans copie intermédiaire de la pile.
+     *
+     * @param from   La position de la première valeur copiée, depuis la base.
+     * @param target Le tampon, rempli autant que possible.
+     * @return Le nombre de valeurs copiées.
+     */
+    public int copyStackTo(int from, DoubleBuffer target) {
+        return persistent != null ? persistent.copyTo(from, target) : stack.copyTo(from, target);
+    }
+
+    /**
+     * Instantané immuable d'un état : champs scalaires et version de la pile persistante.
+     */
+    public static final class Snapshot {
+        private final double number;
+        private final String text;
+        private final String formatted;
+        private final double memory;
+        private final String error;
+        private final boolean hasError;
+        private final boolean isMutable;
+        private final Operator currentOperator;
+        private final boolean waitingForNextOperand;
+        private final boolean clearedOnNextInput;
+        private final PersistentStack stack;
+
+        private Snapshot(State state) {
+            number = state.number;
+            text = state.text;
+            formatted = state.formatted;
+            memory = state.memory;
+            error = state.error;
+            hasError = state.hasError;
+            isMutable = state.isMutable;
+            currentOperator = state.currentOperator;
+            waitingForNextOperand = state.waitingForNextOperand;
+            clearedOnNextInput = state.clearedOnNextInput;
+            stack = state.persistent;
+        }
     }
 }
 
@@ -0,0 +1,78 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Réserve d'états de calculatrice réutilisables, un par session de calcul.
+ * Chaque thread obtient son propre {@link State} via {@link #acquire()} et le rend
+ * avec {@link #release(State)} ; plusieurs calculs indépendants peuvent ainsi
+ * s'exécuter en parallèle sans partager d'état. La réserve est thread-safe.
+ */
+public class StatePool {
+    private final ConcurrentLinkedQueue<State> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+
+    /**
+     * Constructeur de la réserve.
+     *
+     * @param maxIdle Nombre maximal d'états inutilisés conservés pour être réutilisés.
+     */
+    public StatePool(int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle must be positive: " + maxIdle);
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Obtient un état réinitialisé, réutilisé si possible, sinon nouvellement créé.
+     *
+     * @return Un état propre à l'appelant jusqu'à son retour dans la réserve.
+     */
+    public State acquire() {
+        State state = idle.poll();
+        if (state == null) {
+            return new State();
+        }
+        idleCount.decrementAndGet();
+        return state;
+    }
+
+    /**
+     * Rend un état à la réserve. L'état est réinitialisé et ne doit plus être utilisé par l'appelant.
+     *
+     * @param state L'état à rendre.
+     */
+    public void release(State state) {
+        state.reset();
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(state);
+        } else {
+            idleCount.decrementAndGet();  // réserve pleine : l'état est abandonné
+        }
+    }
+
+    /**
+     * Exécute un calcul sur un état de la réserve, puis le rend automatiquement.
+     *
+     * @param session Le calcul à exécuter.
+     * @param <R>     Le type du résultat.
+     * @return Le résultat du calcul.
+     */
+    public <R> R withState(Function<State, R> session) {
+        State state = acquire();
+        try {
+            return session.apply(state);
+        } finally {
+            release(state);
+        }
+    }
+}
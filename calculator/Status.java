@@ -0,0 +1,63 @@
+/**
+ * @author Aubry Antoine
+ * @author Faria dos Santos Dani Tiago
+ */
+
+package calculator;
+
+/**
+ * Codes d'état des calculs : un calcul hors du domaine d'une opération est signalé par un code
+ * non nul plutôt que par une {@link ArithmeticException}, dont la construction (avec sa trace
+ * de pile) coûte bien plus cher que le calcul lui-même. Les opérateurs vérifient leur domaine
+ * avec {@code status(...)} avant de calculer, et les modes d'évaluation propagent le code.
+ *
+ * Chaque code correspond au message d'erreur de l'opérateur concerné ({@link #message(int)}) :
+ * le REPL, l'interface graphique et le mode batch affichent les mêmes messages qu'avant. Les
+ * API qui annoncent une {@link ArithmeticException} la lèvent toujours, à partir du code.
+ */
+final class Status {
+
+    /**
+     * Calcul réussi.
+     */
+    static final int OK = 0;
+
+    /**
+     * Division par zéro ({@link Division#ERROR}).
+     */
+    static final int DIVISION_BY_ZERO = 1;
+
+    /**
+     * Racine carrée d'un nombre négatif ({@link SquareRoot#ERROR}).
+     */
+    static final int NEGATIVE_SQUARE_ROOT = 2;
+
+    /**
+     * Réciproque de zéro ({@link Reciprocal#ERROR}).
+     */
+    static final int RECIPROCAL_OF_ZERO = 3;
+
+    private static final String[] MESSAGES = {null, Division.ERROR, SquareRoot.ERROR, Reciprocal.ERROR};
+
+    private Status() {}
+
+    /**
+     * Retourne le message d'erreur d'un code.
+     *
+     * @param status Le code d'état.
+     * @return Le message, ou null pour {@link #OK}.
+     */
+    static String message(int status) {
+        return MESSAGES[status];
+    }
+
+    /**
+     * Construit l'exception correspondant à un code d'erreur, pour les API qui en lèvent une.
+     *
+     * @param status Le code d'état, différent de {@link #OK}.
+     * @return L'exception, avec le message du code.
+     */
+    static ArithmeticException exception(int status) {
+        return new ArithmeticException(message(status));
+    }
+}